@@ -0,0 +1,111 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files (in CSV format, as written by the jmh profile) benchmark by benchmark: the score of
+ * each benchmark (and its allocation per operation, from the GC profiler) in the baseline and in the new result, the
+ * relative change, and whether the change is larger than the sum of the two error margins (i.e. it is not noise).
+ * Run with: mvn -Pjmh exec:exec@jmh-diff -Djmh.baseline=baseline.csv (-Djmh.result=result.csv)
+ */
+public class BenchmarkDiff {
+
+    /**
+     * A row of a result file: the score and its error margin (NaN if there were too few samples).
+     */
+    private static final class Score {
+        final double score, error;
+        final String unit;
+
+        Score(double score, double error, String unit) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BenchmarkDiff <baseline.csv> <result.csv>");
+            System.exit(1);
+        }
+        Map<String, Score> baseline = read(args[0]);
+        Map<String, Score> result = read(args[1]);
+
+        System.out.printf("%-80s %14s %14s %9s  %s%n", "benchmark", "baseline", "result", "change", "unit");
+        for (Map.Entry<String, Score> entry : result.entrySet()) {
+            Score after = entry.getValue(), before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %9s  %s%n", entry.getKey(), "-", after.score, "new", after.unit);
+                continue;
+            }
+            double change = before.score == 0 ? 0 : (after.score - before.score) / before.score * 100;
+            double margin = (Double.isNaN(before.error) ? 0 : before.error) + (Double.isNaN(after.error) ? 0 : after.error);
+            boolean significant = Math.abs(after.score - before.score) > margin;
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), before.score, after.score, change,
+                    after.unit, significant ? "" : "  (within error)");
+        }
+        for (String key : baseline.keySet())
+            if (!result.containsKey(key))
+                System.out.printf("%-80s %14.3f %14s %9s%n", key, baseline.get(key).score, "-", "removed");
+    }
+
+    /**
+     * @return - the primary score and the normalized allocation of each benchmark in the file, by the benchmark name
+     * and its parameters.
+     */
+    private static Map<String, Score> read(String file) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        List<String> header = fields(lines.get(0));
+        int name = header.indexOf("Benchmark"), score = header.indexOf("Score"), unit = header.indexOf("Unit");
+        int error = score + 1;
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> row = fields(line);
+            String benchmark = row.get(name);
+            if (benchmark.contains(":") && !benchmark.endsWith("gc.alloc.rate.norm")) continue;
+            int method = benchmark.indexOf(':') < 0 ? benchmark.length() : benchmark.indexOf(':');
+            StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', method) + 1));
+            char separator = ' ';
+            for (int i = unit + 1; i < Math.min(header.size(), row.size()); ++i)
+                if (!row.get(i).isEmpty()) {
+                    key.append(separator).append(header.get(i).replace("Param: ", "")).append('=').append(row.get(i));
+                    separator = ',';
+                }
+            scores.put(key.toString(), new Score(parse(row.get(score)), parse(row.get(error)), row.get(unit)));
+        }
+        return scores;
+    }
+
+    private static double parse(String number) {
+        try {
+            return Double.parseDouble(number.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * @return - the fields of a CSV line (quotes removed).
+     */
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (char c : line.toCharArray())
+            if (c == '"') quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else field.append(c);
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,134 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmarks of the set logic of UtilImpl: testSet, cardToFeatures/cardsToFeatures and findSets.
+ * Each benchmark runs for every combination of the feature size, the feature count and the input:
+ * - table: config.tableSize random cards of the deck (what the dealer and the hints search);
+ * - deck: the full deck;
+ * - noSets: a fragment of the deck that holds no set (the worst case of a search, which never stops early).
+ * testSet validates candidates made of the input cards (half of them legal sets, if the input has any).
+ * Run with: mvn -Pjmh test-compile exec:exec@jmh (see the jmh profile in pom.xml).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    private static final int CANDIDATES = 1024;
+
+    @Param({"3", "4"})
+    public int featureSize;
+
+    @Param({"4", "5"})
+    public int featureCount;
+
+    @Param({"table", "deck", "noSets"})
+    public String input;
+
+    private UtilImpl util;
+    private List<Integer> cards;
+    private int[] cardArray;
+    private int[][] candidates;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(java.util.logging.Level.OFF);
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        Config config = new Config(logger, properties);
+        util = new UtilImpl(config);
+
+        Random random = new Random(42);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, random);
+        switch (input) {
+            case "table":
+                cards = new ArrayList<>(deck.subList(0, Math.min(config.tableSize, deck.size())));
+                break;
+            case "deck":
+                cards = deck;
+                break;
+            case "noSets":
+                cards = withoutSets(deck);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown input: " + input);
+        }
+        cardArray = cards.stream().mapToInt(Integer::intValue).toArray();
+
+        List<int[]> sets = util.findSets(cards, CANDIDATES / 2);
+        candidates = new int[CANDIDATES][];
+        for (int i = 0; i < CANDIDATES; ++i)
+            if (i % 2 == 0 && !sets.isEmpty())
+                candidates[i] = sets.get(i / 2 % sets.size());
+            else
+                candidates[i] = random.ints(featureSize, 0, cardArray.length).map(j -> cardArray[j]).toArray();
+    }
+
+    /**
+     * @return - a maximal subset of the given cards (in their order) that holds no set.
+     */
+    private List<Integer> withoutSets(List<Integer> deck) {
+        List<Integer> fragment = new ArrayList<>();
+        for (int card : deck) {
+            fragment.add(card);
+            if (util.countSets(fragment, 1) > 0)
+                fragment.remove(fragment.size() - 1);
+        }
+        return fragment;
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        return util.testSet(candidates[next++ & (CANDIDATES - 1)]);
+    }
+
+    @Benchmark
+    public int[] cardToFeatures() {
+        return util.cardToFeatures(cardArray[next++ % cardArray.length]);
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        return util.cardsToFeatures(cardArray);
+    }
+
+    @Benchmark
+    public List<int[]> findSets() {
+        return util.findSets(cards, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<int[]> findOneSet() {
+        return util.findSets(cards, 1);
+    }
+}
@@ -0,0 +1,211 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Logs the events of the game hot paths from a background thread, so the game threads never format a message nor
+ * wait for the log handlers (i.e. the disk).
+ * An event is a level, a message format with "{}" for each argument, and up to two arguments (numbers or objects).
+ * A game thread checks the level first (a disabled level costs nothing else), then claims a preallocated slot of a
+ * ring buffer with a single compare-and-set, copies the event into it and publishes it. A single writer
+ * thread formats the published events in order and passes them to the logger. The writer parks while there are no
+ * events, and the game thread that publishes the first event after that wakes it up (so an idle logger costs nothing).
+ * When the ring buffer is full the event is dropped (and counted), so the loss is bounded by the writer falling
+ * behind and a game thread never blocks. The writer reports the number of events dropped.
+ * With a buffer size of 0 or less the events are logged synchronously (as a plain logger does).
+ */
+public final class AsyncLogger implements AutoCloseable {
+
+    /**
+     * A preallocated event: the writer may read it once its sequence is the sequence the slot was claimed at.
+     */
+    private static final class Slot {
+        volatile long sequence = -1;
+        long millis;
+        Level level;
+        String format;
+        int arguments;
+        long first, second;
+        Object firstObject, secondObject;
+    }
+
+    private final Logger logger;
+    private final Slot[] slots;
+    private final int mask;
+
+    /**
+     * The sequence of the next slot to claim, and of the next slot the writer reads.
+     */
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+
+    /**
+     * True iff the writer is parked (or about to park) until an event is published.
+     */
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * @param logger     - the logger the events are passed to.
+     * @param bufferSize - the number of slots of the ring buffer (rounded up to a power of 2; 0 or less to log
+     *                   synchronously).
+     */
+    public AsyncLogger(Logger logger, int bufferSize) {
+        this.logger = logger;
+        if (bufferSize <= 0) {
+            slots = null;
+            mask = 0;
+            writer = null;
+            return;
+        }
+        int size = Integer.highestOneBit(Math.max(bufferSize - 1, 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; ++i)
+            slots[i] = new Slot();
+        mask = size - 1;
+        writer = new Thread(this::write, "async-logger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return - true iff events of the given level are logged (the caller can skip preparing the arguments if not).
+     */
+    public boolean isLoggable(Level level) {
+        return logger.isLoggable(level);
+    }
+
+    public void log(Level level, String format) {
+        if (logger.isLoggable(level)) publish(level, format, 0, 0, 0, null, null);
+    }
+
+    public void log(Level level, String format, long first) {
+        if (logger.isLoggable(level)) publish(level, format, 1, first, 0, null, null);
+    }
+
+    public void log(Level level, String format, long first, long second) {
+        if (logger.isLoggable(level)) publish(level, format, 2, first, second, null, null);
+    }
+
+    /**
+     * @param first - the argument (an int[] is copied, as the caller may reuse it; formatted by the writer).
+     */
+    public void log(Level level, String format, Object first) {
+        if (logger.isLoggable(level)) publish(level, format, 1, 0, 0, copy(first), null);
+    }
+
+    public void log(Level level, String format, Object first, Object second) {
+        if (logger.isLoggable(level)) publish(level, format, 2, 0, 0, copy(first), copy(second));
+    }
+
+    private static Object copy(Object argument) {
+        return argument instanceof int[] ? ((int[]) argument).clone() : argument;
+    }
+
+    private void publish(Level level, String format, int arguments, long first, long second, Object firstObject, Object secondObject) {
+        if (slots == null) {
+            logger.log(record(System.currentTimeMillis(), level, format, arguments, first, second, firstObject, secondObject));
+            return;
+        }
+        long sequence;
+        do {
+            sequence = head.get();
+            if (closed || sequence - tail >= slots.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.millis = System.currentTimeMillis();
+        slot.level = level;
+        slot.format = format;
+        slot.arguments = arguments;
+        slot.first = first;
+        slot.second = second;
+        slot.firstObject = firstObject;
+        slot.secondObject = secondObject;
+        slot.sequence = sequence;
+        // only the first event after the writer went idle wakes it up
+        if (sleeping.get() && sleeping.compareAndSet(true, false)) LockSupport.unpark(writer);
+    }
+
+    /**
+     * The writer thread: passes the published events to the logger in order, and parks when there are none.
+     */
+    private void write() {
+        long reported = 0;
+        while (true) {
+            boolean wrote = false;
+            for (Slot slot = slots[(int) tail & mask]; slot.sequence == tail; slot = slots[(int) tail & mask]) {
+                LogRecord record = record(slot.millis, slot.level, slot.format, slot.arguments, slot.first, slot.second,
+                        slot.firstObject, slot.secondObject);
+                slot.firstObject = slot.secondObject = null;
+                tail = tail + 1;
+                logger.log(record);
+                wrote = true;
+            }
+            long drops = dropped.get();
+            if (drops != reported) {
+                logger.warning("async logger dropped " + (drops - reported) + " events (ring buffer full)");
+                reported = drops;
+            }
+            if (!wrote) {
+                if (closed && head.get() == tail) return;
+                sleeping.set(true);
+                // check again after announcing the sleep, so an event published in between is not missed
+                if (!closed && slots[(int) tail & mask].sequence != tail) LockSupport.park(this);
+                sleeping.set(false);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation") // setMillis is the only way to set the time of a record in java 8
+    private static LogRecord record(long millis, Level level, String format, int arguments, long first, long second,
+                                    Object firstObject, Object secondObject) {
+        StringBuilder message = new StringBuilder(format.length() + 16);
+        int from = 0;
+        for (int argument = 0; argument < arguments; ++argument) {
+            int at = format.indexOf("{}", from);
+            if (at < 0) break;
+            message.append(format, from, at);
+            Object object = argument == 0 ? firstObject : secondObject;
+            if (object instanceof int[]) message.append(Arrays.toString((int[]) object));
+            else if (object != null) message.append(object);
+            else message.append(argument == 0 ? first : second);
+            from = at + 2;
+        }
+        message.append(format, from, format.length());
+        LogRecord record = new LogRecord(level, message.toString());
+        record.setMillis(millis);
+        return record;
+    }
+
+    /**
+     * @return - the number of events dropped because the ring buffer was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops taking events, and waits until the writer passes the events published so far to the logger.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package bguspl.set;
+
+import java.util.function.Predicate;
+
+/**
+ * Finds legal sets by testing every combination of setSize cards in the collection.
+ */
+final class CombinationSetFinder extends SetFinder {
+
+    /**
+     * The utilities used to test sets.
+     */
+    private final Util util;
+
+    /**
+     * The number of cards in a legal set.
+     */
+    private final int setSize;
+
+    /**
+     * @param deckSize          - the total number of cards in the deck.
+     * @param parallelThreshold - the minimal number of cards for which the search runs in parallel.
+     * @param util              - the utilities used to test sets.
+     * @param setSize           - the number of cards in a legal set.
+     */
+    CombinationSetFinder(int deckSize, int parallelThreshold, Util util, int setSize) {
+        super(deckSize, parallelThreshold);
+        this.util = util;
+        this.setSize = setSize;
+    }
+
+    @Override
+    void search(int[] cards, long[] present, int from, int to, Limit limit, Predicate<int[]> sink) {
+        int n = cards.length;
+        int r = setSize;
+        if (r < 1 || n < r) return;
+        int[] combination = new int[r];
+        int[] candidate = new int[r];
+        long nodes = 0;
+
+        search:
+        for (int first = from; first < to && !limit.reached(); ++first) {
+            combination[0] = first;
+            for (int i = 1; i < r; ++i)
+                combination[i] = first + i;
+
+            while (combination[r - 1] < n) {
+                ++nodes;
+                for (int i = 0; i < r; ++i)
+                    candidate[i] = cards[combination[i]];
+                if (util.testSet(candidate, r) && limit.found(candidate, sink)) break search;
+                if (r == 1) break;
+
+                // generate next combination of the remaining cards in lexicographic order
+                int t = r - 1;
+                while (t != 1 && combination[t] == n - r + t) --t;
+                combination[t]++;
+                for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+            }
+        }
+        limit.visited(nodes);
+    }
+}
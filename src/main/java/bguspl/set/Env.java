@@ -1,18 +1,47 @@
-package bguspl.set;
-
-import java.util.logging.Logger;
-
-public class Env {
-
-    public final Logger logger;
-    public final Config config;
-    public final UserInterface ui;
-    public final Util util;
-
-    public Env(Logger logger, Config config, UserInterface ui, Util util) {
-        this.logger = logger;
-        this.config = config;
-        this.ui = ui;
-        this.util = util;
-    }
-}
+package bguspl.set;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+public class Env {
+
+    public final Logger logger;
+    public final Config config;
+    public final UserInterface ui;
+    public final Util util;
+    public final ThreadFactory threadFactory;
+    public final GameJournal journal;
+    public final GameMetrics metrics;
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, Thread::new);
+    }
+
+    /**
+     * @param threadFactory - creates the threads of the game entities (players and computer players).
+     */
+    public Env(Logger logger, Config config, UserInterface ui, Util util, ThreadFactory threadFactory) {
+        this(logger, config, ui, util, threadFactory, GameJournal.DISABLED);
+    }
+
+    /**
+     * @param journal - the journal of the game events (GameJournal.DISABLED for none).
+     */
+    public Env(Logger logger, Config config, UserInterface ui, Util util, ThreadFactory threadFactory, GameJournal journal) {
+        this(logger, config, ui, util, threadFactory, journal, GameMetrics.DISABLED);
+    }
+
+    /**
+     * @param metrics - the runtime metrics of the game (GameMetrics.DISABLED for none).
+     */
+    public Env(Logger logger, Config config, UserInterface ui, Util util, ThreadFactory threadFactory, GameJournal journal,
+               GameMetrics metrics) {
+        this.logger = logger;
+        this.config = config;
+        this.ui = ui;
+        this.util = util;
+        this.threadFactory = threadFactory;
+        this.journal = journal;
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,127 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Runs many games of computer players in the same process.
+ * All the games share the same (immutable) configuration and utilities. The dealers of the games run on a fixed pool
+ * of threads, so at most maxConcurrentGames games run at a time and the others wait for their turn. The players of a
+ * running game have their own threads, created by a thread factory shared by all the games, so the number of threads
+ * in the process depends on the number of games running at a time and not on the number of games created (and with
+ * virtual threads, only the dealers take platform threads).
+ */
+public class GameHost implements AutoCloseable {
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+
+    /**
+     * Creates the user interface of each game.
+     */
+    private final Supplier<UserInterface> ui;
+
+    /**
+     * The threads the dealers run on, and the factory of the players' threads.
+     */
+    private final ExecutorService dealers;
+    private final ThreadFactory threadFactory;
+
+    /**
+     * The id of the next game, and the dealers of the games that are currently running.
+     */
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final Set<Dealer> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param logger             - the logger shared by all the games.
+     * @param config             - the configuration shared by all the games (all the players are computer players).
+     * @param util               - the utilities shared by all the games.
+     * @param ui                 - creates the user interface of each game.
+     * @param maxConcurrentGames - the maximal number of games that run at the same time.
+     */
+    public GameHost(Logger logger, Config config, Util util, Supplier<UserInterface> ui, int maxConcurrentGames) {
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+        this.ui = ui;
+        ThreadFactory virtualThreads = GameThreads.virtualThreads(config, logger);
+        threadFactory = virtualThreads != null ? virtualThreads : daemonThreads("game-player-");
+        dealers = Executors.newFixedThreadPool(maxConcurrentGames, daemonThreads("game-dealer-"));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Creates a new game, and runs it as soon as one of the dealer threads is free.
+     *
+     * @return - the results of the game, available when it ends.
+     */
+    public Future<GameStats> submit() {
+        int game = nextGame.getAndIncrement();
+        return dealers.submit(() -> play(game));
+    }
+
+    /**
+     * Runs a game to completion on the calling thread.
+     */
+    private GameStats play(int game) {
+        Env env = new Env(logger, config, ui.get(), util, threadFactory);
+        Player[] players = new Player[config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        long start = System.currentTimeMillis();
+        running.add(dealer);
+        try {
+            dealer.run();
+        } finally {
+            running.remove(dealer);
+        }
+
+        int[] scores = new int[players.length];
+        for (int i = 0; i < players.length; i++)
+            scores[i] = players[i].score();
+        return new GameStats(game, scores, System.currentTimeMillis() - start, dealer.getSetsCollected(), dealer.getReshuffles());
+    }
+
+    /**
+     * @return - the number of games that are currently running.
+     */
+    public int runningGames() {
+        return running.size();
+    }
+
+    /**
+     * Terminates the running games, cancels the games that did not start yet and waits for the dealer threads.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        dealers.shutdownNow();
+        for (Dealer dealer : running)
+            dealer.terminate();
+        dealers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
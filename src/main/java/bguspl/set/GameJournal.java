@@ -0,0 +1,182 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An append-only binary journal of the game events, written into a memory-mapped file (see JournalReader).
+ * Every event is a record of RECORD_SIZE bytes: the time (nanoseconds since the journal was opened), the type, the
+ * player, the slot, the card and a value (-1 in the fields that do not apply to the type).
+ * A writer reserves the place of its record with a single atomic increment and writes it straight into the mapped
+ * file, so the threads of the game write at the same time with no locks, no strings and no system calls (the file is
+ * mapped one segment at a time as it grows). Records beyond maxBytes are dropped and counted.
+ * The header holds the number of records, written when the journal is closed (until then, a reader stops at the first
+ * empty record). A reader must skip the empty records within that count: they were reserved by writers that raced with
+ * close, and never written.
+ */
+public final class GameJournal implements AutoCloseable {
+
+    /**
+     * The types of the events.
+     */
+    public static final int CARD_PLACED = 1;
+    public static final int CARD_REMOVED = 2;
+    public static final int TOKEN_PLACED = 3;
+    public static final int TOKEN_REMOVED = 4;
+    public static final int CLAIM = 5;          // one record per card of the claim, value: the table version
+    public static final int VERDICT = 6;        // value: 1 for a legal set, 0 for an illegal one, -1 if discarded
+    public static final int RESHUFFLE = 7;      // value: the number of reshuffles so far
+    public static final int SCORE = 8;          // value: the new score
+
+    static final String[] TYPE_NAMES = {"", "card-placed", "card-removed", "token-placed", "token-removed", "claim",
+            "verdict", "reshuffle", "score"};
+
+    static final int MAGIC = 0x5345544a; // "SETJ"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 32;
+    static final int SEGMENT_SHIFT = 24;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    /**
+     * A journal that drops all the events (the default of the environment).
+     */
+    public static final GameJournal DISABLED = new GameJournal();
+
+    private final FileChannel channel;
+    private final AtomicReferenceArray<MappedByteBuffer> segments;
+    private final long capacity;
+    private final long startNanos;
+    private final AtomicLong next = new AtomicLong();
+    private volatile boolean closed;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private GameJournal() {
+        channel = null;
+        segments = null;
+        capacity = 0;
+        startNanos = 0;
+        closed = true;
+    }
+
+    private GameJournal(FileChannel channel, long maxBytes) {
+        this.channel = channel;
+        long segmentCount = Math.max((maxBytes + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT, 1);
+        segments = new AtomicReferenceArray<>((int) segmentCount);
+        capacity = (segmentCount * SEGMENT_SIZE - HEADER_SIZE) / RECORD_SIZE;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates a journal in a new file (replacing the file, if it exists).
+     *
+     * @param file     - the file of the journal.
+     * @param maxBytes - the maximal size of the file (rounded up to a whole number of segments).
+     */
+    public static GameJournal open(Path file, long maxBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        GameJournal journal = new GameJournal(channel, maxBytes);
+        MappedByteBuffer header = journal.segment(0);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, RECORD_SIZE);
+        header.putLong(16, System.currentTimeMillis());
+        header.putLong(24, 0);
+        return journal;
+    }
+
+    /**
+     * @return - true iff the events are written (i.e. the journal is open).
+     */
+    public boolean enabled() {
+        return !closed;
+    }
+
+    /**
+     * Appends an event to the journal (does nothing if the journal is closed).
+     */
+    public void write(int type, int player, int slot, int card, long value) {
+        if (closed) return;
+        long index = next.getAndIncrement();
+        if (index >= capacity) return;
+        long position = HEADER_SIZE + index * RECORD_SIZE;
+        MappedByteBuffer segment;
+        try {
+            segment = segment((int) (position >>> SEGMENT_SHIFT));
+        } catch (IOException e) {
+            return;
+        }
+        int offset = (int) (position & (SEGMENT_SIZE - 1));
+        segment.putLong(offset, System.nanoTime() - startNanos);
+        segment.putInt(offset + 12, player);
+        segment.putInt(offset + 16, slot);
+        segment.putInt(offset + 20, card);
+        segment.putLong(offset + 24, value);
+        // the type goes last, so a reader of an open journal does not see a record before the rest of it
+        segment.putInt(offset + 8, type);
+    }
+
+    /**
+     * @return - the mapped segment, which is mapped on the first use.
+     */
+    private MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer segment = segments.get(index);
+        if (segment != null) return segment;
+        lock.lock();
+        try {
+            segment = segments.get(index);
+            if (segment == null) {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) index << SEGMENT_SHIFT, SEGMENT_SIZE);
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segments.set(index, segment);
+            }
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return - the number of events written so far, and the number of events dropped because the journal was full.
+     */
+    public long written() {
+        return Math.min(next.get(), capacity);
+    }
+
+    public long dropped() {
+        return Math.max(next.get() - capacity, 0);
+    }
+
+    /**
+     * Writes the number of records to the header and flushes the journal to the file (the events written after the
+     * journal is closed are dropped). The file keeps the size of the segments mapped, so a writer that raced with
+     * close never writes past its end.
+     * The count includes the records reserved by writers that had not finished when the journal was closed, which may
+     * stay empty in the file (close does not wait for the writers, so the writes never block), and JournalReader.next
+     * skips them.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            long count = written();
+            MappedByteBuffer header = segment(0);
+            header.putLong(24, count);
+            for (int i = 0; i < segments.length(); ++i)
+                if (segments.get(i) != null) segments.get(i).force();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package bguspl.set;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The runtime metrics of a game, published as an MBean (see GameMetricsMBean).
+ * The counters are striped adders, so the game threads update them with no contention; the per-player state is kept
+ * in atomic arrays updated only when it changes, and the queue depths are read from the queues when asked for.
+ * A disabled instance (DISABLED, the default of the environment) ignores all the updates after a single check, and the
+ * callers skip taking the time of the events it would not count.
+ */
+public final class GameMetrics implements GameMetricsMBean {
+
+    /**
+     * Metrics that count nothing.
+     */
+    public static final GameMetrics DISABLED = new GameMetrics(0, false);
+
+    /**
+     * True iff the metrics are counted.
+     */
+    public final boolean enabled;
+
+    private final LongAdder dealerIterations = new LongAdder();
+    private final LongAdder validClaims = new LongAdder();
+    private final LongAdder invalidClaims = new LongAdder();
+    private final LongAdder staleClaims = new LongAdder();
+    private final LongAdder playerGateEntries = new LongAdder();
+    private final LongAdder playerGateWaitNanos = new LongAdder();
+    private final LongAdder dealerGateEntries = new LongAdder();
+    private final LongAdder dealerGateWaitNanos = new LongAdder();
+    private final LongAdder droppedKeyPresses = new LongAdder();
+    private final LongAdder blockedKeyPresses = new LongAdder();
+    private final LongAdder keyPressBlockedNanos = new LongAdder();
+
+    /**
+     * The time from the submission of each claim to its verdict, in log-linear buckets (LATENCY_SUB_BUCKETS per power
+     * of 2, so a percentile is within 1/LATENCY_SUB_BUCKETS of its value), and the longest one.
+     */
+    private static final int LATENCY_SUB_BUCKETS = 16;
+    private final AtomicLongArray verdictLatencies = new AtomicLongArray(Long.SIZE * LATENCY_SUB_BUCKETS);
+    private volatile long maxVerdictLatency;
+
+    private final AtomicIntegerArray scores;
+    private final AtomicLongArray frozenUntil;
+
+    private volatile IntSupplier claimQueue = () -> 0;
+    private volatile IntSupplier keyPressQueue = () -> 0;
+
+    /**
+     * The dealer iterations and the time at the previous rate query.
+     */
+    private long lastIterations;
+    private long lastNanos = System.nanoTime();
+
+    private ObjectName name;
+
+    /**
+     * @param players - the number of players in the game.
+     */
+    public GameMetrics(int players) {
+        this(players, true);
+    }
+
+    private GameMetrics(int players, boolean enabled) {
+        this.enabled = enabled;
+        scores = new AtomicIntegerArray(players);
+        frozenUntil = new AtomicLongArray(players);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server (does nothing if they are disabled).
+     *
+     * @param name   - the object name of the MBean (e.g. "bguspl.set:type=GameMetrics").
+     * @param logger - logs a failure to register.
+     */
+    public void register(String name, Logger logger) {
+        if (!enabled) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            this.name = new ObjectName(name);
+            server.registerMBean(this, this.name);
+        } catch (JMException e) {
+            this.name = null;
+            logger.severe("error registering metrics " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server (if they were registered).
+     */
+    public void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {}
+        name = null;
+    }
+
+    /**
+     * Sets the queues whose depths are reported.
+     */
+    public void watchQueues(IntSupplier claimQueue, IntSupplier keyPressQueue) {
+        this.claimQueue = claimQueue;
+        this.keyPressQueue = keyPressQueue;
+    }
+
+    public void dealerIteration() {
+        if (enabled) dealerIterations.increment();
+    }
+
+    /**
+     * @param verdict - 1 for a legal set, 0 for an illegal one, -1 for a claim discarded as stale.
+     */
+    public void claimResolved(int verdict) {
+        if (!enabled) return;
+        if (verdict > 0) validClaims.increment();
+        else if (verdict == 0) invalidClaims.increment();
+        else staleClaims.increment();
+    }
+
+    /**
+     * @param latencyNanos - the time from the submission of a claim to its verdict (recorded by the dealer thread).
+     */
+    public void verdictLatency(long latencyNanos) {
+        if (!enabled) return;
+        long value = Math.max(latencyNanos, 1);
+        int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = magnitude < 4 ? (int) value : (int) (value >>> (magnitude - 4)) & (LATENCY_SUB_BUCKETS - 1);
+        verdictLatencies.incrementAndGet(magnitude * LATENCY_SUB_BUCKETS + sub);
+        if (latencyNanos > maxVerdictLatency) maxVerdictLatency = latencyNanos;
+    }
+
+    /**
+     * @param percentile - the percentile (between 0 and 100).
+     * @return - the verdict latency at the percentile (the lower bound of its bucket, or the longest latency for 100),
+     * 0 if no verdict was given.
+     */
+    public long verdictLatencyNanos(double percentile) {
+        long count = 0;
+        for (int i = 0; i < verdictLatencies.length(); ++i)
+            count += verdictLatencies.get(i);
+        if (count == 0) return 0;
+        if (percentile >= 100) return maxVerdictLatency;
+        long rank = Math.max((long) Math.ceil(count * percentile / 100), 1), seen = 0;
+        for (int i = 0; i < verdictLatencies.length(); ++i) {
+            seen += verdictLatencies.get(i);
+            if (seen >= rank) {
+                int magnitude = i / LATENCY_SUB_BUCKETS, sub = i % LATENCY_SUB_BUCKETS;
+                return magnitude < 4 ? sub : (long) (LATENCY_SUB_BUCKETS + sub) << (magnitude - 4);
+            }
+        }
+        return maxVerdictLatency;
+    }
+
+    /**
+     * @param waitNanos - the time a player thread waited at the table gate.
+     */
+    public void playerGateEntered(long waitNanos) {
+        if (!enabled) return;
+        playerGateEntries.increment();
+        playerGateWaitNanos.add(waitNanos);
+    }
+
+    /**
+     * @param waitNanos - the time the dealer waited at the table gate.
+     */
+    public void dealerGateEntered(long waitNanos) {
+        if (!enabled) return;
+        dealerGateEntries.increment();
+        dealerGateWaitNanos.add(waitNanos);
+    }
+
+    public void keyPressDropped() {
+        if (enabled) droppedKeyPresses.increment();
+    }
+
+    /**
+     * @param blockedNanos - the time a computer player waited for room in a full queue (its key presses are never
+     *                     dropped).
+     */
+    public void keyPressBlocked(long blockedNanos) {
+        if (!enabled) return;
+        blockedKeyPresses.increment();
+        keyPressBlockedNanos.add(blockedNanos);
+    }
+
+    public void score(int player, int score) {
+        if (enabled) scores.set(player, score);
+    }
+
+    /**
+     * @param millis - the length of the freeze starting now.
+     */
+    public void freeze(int player, long millis) {
+        if (enabled) frozenUntil.set(player, System.currentTimeMillis() + millis);
+    }
+
+    @Override
+    public long getDealerIterations() {
+        return dealerIterations.sum();
+    }
+
+    @Override
+    public synchronized double getDealerIterationsPerSecond() {
+        long iterations = dealerIterations.sum(), now = System.nanoTime();
+        double rate = (iterations - lastIterations) * 1e9 / Math.max(now - lastNanos, 1);
+        lastIterations = iterations;
+        lastNanos = now;
+        return rate;
+    }
+
+    @Override
+    public int getClaimQueueDepth() {
+        return claimQueue.getAsInt();
+    }
+
+    @Override
+    public int getKeyPressQueueDepth() {
+        return keyPressQueue.getAsInt();
+    }
+
+    @Override
+    public long getClaimsResolved() {
+        return validClaims.sum() + invalidClaims.sum() + staleClaims.sum();
+    }
+
+    @Override
+    public long getValidClaims() {
+        return validClaims.sum();
+    }
+
+    @Override
+    public long getInvalidClaims() {
+        return invalidClaims.sum();
+    }
+
+    @Override
+    public long getStaleClaims() {
+        return staleClaims.sum();
+    }
+
+    @Override
+    public long getVerdictLatencyP50Nanos() {
+        return verdictLatencyNanos(50);
+    }
+
+    @Override
+    public long getVerdictLatencyP99Nanos() {
+        return verdictLatencyNanos(99);
+    }
+
+    @Override
+    public long getPlayerGateEntries() {
+        return playerGateEntries.sum();
+    }
+
+    @Override
+    public long getPlayerGateWaitNanos() {
+        return playerGateWaitNanos.sum();
+    }
+
+    @Override
+    public long getDealerGateEntries() {
+        return dealerGateEntries.sum();
+    }
+
+    @Override
+    public long getDealerGateWaitNanos() {
+        return dealerGateWaitNanos.sum();
+    }
+
+    @Override
+    public long getDroppedKeyPresses() {
+        return droppedKeyPresses.sum();
+    }
+
+    @Override
+    public long getBlockedKeyPresses() {
+        return blockedKeyPresses.sum();
+    }
+
+    @Override
+    public long getKeyPressBlockedNanos() {
+        return keyPressBlockedNanos.sum();
+    }
+
+    @Override
+    public int[] getPlayerScores() {
+        int[] result = new int[scores.length()];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = scores.get(i);
+        return result;
+    }
+
+    @Override
+    public long[] getPlayerFreezeMillis() {
+        long now = System.currentTimeMillis();
+        long[] result = new long[frozenUntil.length()];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = Math.max(frozenUntil.get(i) - now, 0);
+        return result;
+    }
+}
@@ -0,0 +1,74 @@
+package bguspl.set;
+
+/**
+ * The metrics of a game, as seen through JMX (see GameMetrics).
+ */
+public interface GameMetricsMBean {
+
+    /**
+     * @return - the number of iterations of the dealer's loop, and their rate since the previous call.
+     */
+    long getDealerIterations();
+
+    double getDealerIterationsPerSecond();
+
+    /**
+     * @return - the number of claims waiting for the dealer, and of key presses waiting for the event loop.
+     */
+    int getClaimQueueDepth();
+
+    int getKeyPressQueueDepth();
+
+    /**
+     * @return - the number of claims the dealer resolved: legal sets, illegal sets, and claims discarded because their
+     * cards were no longer on the table.
+     */
+    long getClaimsResolved();
+
+    long getValidClaims();
+
+    long getInvalidClaims();
+
+    long getStaleClaims();
+
+    /**
+     * @return - the median and the 99th percentile of the time from the submission of a claim to its verdict.
+     */
+    long getVerdictLatencyP50Nanos();
+
+    long getVerdictLatencyP99Nanos();
+
+    /**
+     * @return - the number of times the player threads entered the table, and the time they waited at its gate.
+     */
+    long getPlayerGateEntries();
+
+    long getPlayerGateWaitNanos();
+
+    /**
+     * @return - the number of times the dealer entered the table, and the time it waited at its gate.
+     */
+    long getDealerGateEntries();
+
+    long getDealerGateWaitNanos();
+
+    /**
+     * @return - the number of key presses dropped because the player's queue was full (human players only).
+     */
+    long getDroppedKeyPresses();
+
+    /**
+     * @return - the number of key presses that waited for room in a full queue, and the time they waited (computer
+     * players only, as their key presses are never dropped).
+     */
+    long getBlockedKeyPresses();
+
+    long getKeyPressBlockedNanos();
+
+    /**
+     * @return - the score of each player, and the milliseconds left in each player's freeze (0 if not frozen).
+     */
+    int[] getPlayerScores();
+
+    long[] getPlayerFreezeMillis();
+}
@@ -0,0 +1,70 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The results of a game that ran to completion.
+ */
+public class GameStats {
+
+    /**
+     * The id of the game (starting from 0, in the order the games were created).
+     */
+    public final int game;
+
+    /**
+     * The score of each player.
+     */
+    public final int[] scores;
+
+    /**
+     * The wall time the game took, in milliseconds.
+     */
+    public final long durationMillis;
+
+    /**
+     * The number of sets collected by the players.
+     */
+    public final int sets;
+
+    /**
+     * The number of times the dealer cleared the table and dealt again.
+     */
+    public final int reshuffles;
+
+    public GameStats(int game, int[] scores, long durationMillis, int sets, int reshuffles) {
+        this.game = game;
+        this.scores = scores;
+        this.durationMillis = durationMillis;
+        this.sets = sets;
+        this.reshuffles = reshuffles;
+    }
+
+    /**
+     * @param games          - the results of some games.
+     * @param durationMillis - the wall time all the games took together, in milliseconds.
+     * @return - the totals of the games as a single line of JSON.
+     */
+    public static String summary(List<GameStats> games, long durationMillis) {
+        long sets = 0, reshuffles = 0, gameMillis = 0;
+        for (GameStats game : games) {
+            sets += game.sets;
+            reshuffles += game.reshuffles;
+            gameMillis += game.durationMillis;
+        }
+        double gamesPerSecond = durationMillis > 0 ? games.size() * 1000.0 / durationMillis : 0;
+        return "{\"games\":" + games.size() + ",\"durationMillis\":" + durationMillis + ",\"gameMillis\":" + gameMillis
+                + ",\"sets\":" + sets + ",\"reshuffles\":" + reshuffles
+                + ",\"gamesPerSecond\":" + String.format(java.util.Locale.ROOT, "%.1f", gamesPerSecond) + "}";
+    }
+
+    /**
+     * @return - the results as a single line of JSON.
+     */
+    @Override
+    public String toString() {
+        return "{\"game\":" + game + ",\"durationMillis\":" + durationMillis + ",\"sets\":" + sets
+                + ",\"reshuffles\":" + reshuffles + ",\"scores\":" + Arrays.toString(scores).replace(" ", "") + "}";
+    }
+}
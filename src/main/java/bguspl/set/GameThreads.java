@@ -0,0 +1,42 @@
+package bguspl.set;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+/**
+ * Creates the thread factories of the game entities, according to the configured execution mode.
+ * Virtual threads are looked up by reflection, so the game still builds and runs on JDKs that do not have them
+ * (in which case platform threads are used instead).
+ */
+public final class GameThreads {
+
+    private GameThreads() {}
+
+    /**
+     * @param config - the game configuration.
+     * @param logger - the logger to report a missing virtual threads support to.
+     * @return - a factory of virtual threads if config.virtualThreads is set and the JDK supports them, null otherwise.
+     */
+    public static ThreadFactory virtualThreads(Config config, Logger logger) {
+        if (!config.virtualThreads) return null;
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            logger.severe("virtual threads are not supported by java " + System.getProperty("java.version") + ", using platform threads.");
+            return null;
+        }
+    }
+
+    /**
+     * @param config - the game configuration.
+     * @param logger - the logger to report a missing virtual threads support to.
+     * @return - the factory of the threads of the players and computer players.
+     */
+    public static ThreadFactory of(Config config, Logger logger) {
+        ThreadFactory virtual = virtualThreads(config, logger);
+        return virtual != null ? virtual : Thread::new;
+    }
+}
@@ -0,0 +1,189 @@
+package bguspl.set;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static bguspl.set.GameJournal.HEADER_SIZE;
+import static bguspl.set.GameJournal.RECORD_SIZE;
+import static bguspl.set.GameJournal.SEGMENT_SHIFT;
+import static bguspl.set.GameJournal.SEGMENT_SIZE;
+
+/**
+ * Streams the records of a game journal (see GameJournal), one segment of the file mapped at a time, so a journal of
+ * any size is read with no heap beyond the reader itself. The reader is a cursor: next moves it to the next record,
+ * and the getters return the fields of the current one.
+ * Also a tool that prints (or counts) the records of a journal that match some filters:
+ * java -cp target/classes bguspl.set.JournalReader journal.bin [type=claim,verdict] [player=0] [slot=3] [card=17]
+ * [from=seconds] [to=seconds] [count]
+ */
+public final class JournalReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final long count;
+    private final boolean closed;
+    private final long fileSize;
+    private final long startMillis;
+
+    private MappedByteBuffer segment;
+    private long segmentStart = -1;
+    private long index = -1;
+    private int offset;
+
+    public JournalReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        fileSize = channel.size();
+        if (fileSize < HEADER_SIZE) throw new IOException("not a game journal");
+        map(0);
+        if (segment.getInt(0) != GameJournal.MAGIC || segment.getInt(4) != GameJournal.VERSION
+                || segment.getInt(8) != RECORD_SIZE)
+            throw new IOException("not a game journal (or an unsupported version)");
+        startMillis = segment.getLong(16);
+        // a journal that was not closed has no count, and ends at the first empty record
+        long closedCount = segment.getLong(24);
+        closed = closedCount > 0;
+        count = closed ? closedCount : (fileSize - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private void map(long position) throws IOException {
+        long start = position >>> SEGMENT_SHIFT << SEGMENT_SHIFT;
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, fileSize - start));
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segmentStart = start;
+    }
+
+    /**
+     * Moves to the next record (skipping records that were reserved but never written).
+     *
+     * @return - false iff there are no more records.
+     */
+    public boolean next() throws IOException {
+        while (++index < count) {
+            long position = HEADER_SIZE + index * RECORD_SIZE;
+            if (position + RECORD_SIZE > fileSize) return false;
+            if (position - segmentStart >= SEGMENT_SIZE || position < segmentStart) map(position);
+            offset = (int) (position - segmentStart);
+            if (type() != 0) return true;
+            // an empty record: the end of a journal that was not closed, or a record lost in a race with close
+            if (!closed) return false;
+        }
+        return false;
+    }
+
+    /**
+     * @return - the wall time the journal was opened at (milliseconds since the epoch).
+     */
+    public long startMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return - the index of the current record in the journal.
+     */
+    public long index() {
+        return index;
+    }
+
+    public long timeNanos() {
+        return segment.getLong(offset);
+    }
+
+    public int type() {
+        return segment.getInt(offset + 8);
+    }
+
+    public int player() {
+        return segment.getInt(offset + 12);
+    }
+
+    public int slot() {
+        return segment.getInt(offset + 16);
+    }
+
+    public int card() {
+        return segment.getInt(offset + 20);
+    }
+
+    public long value() {
+        return segment.getLong(offset + 24);
+    }
+
+    /**
+     * @return - the name of a type of events (see GameJournal), or its number if it has none.
+     */
+    public static String typeName(int type) {
+        return type > 0 && type < GameJournal.TYPE_NAMES.length ? GameJournal.TYPE_NAMES[type] : Integer.toString(type);
+    }
+
+    /**
+     * @return - the current record as a single line of JSON.
+     */
+    @Override
+    public String toString() {
+        return "{\"index\":" + index + ",\"timeNanos\":" + timeNanos() + ",\"type\":\"" + typeName(type())
+                + "\",\"player\":" + player() + ",\"slot\":" + slot() + ",\"card\":" + card() + ",\"value\":" + value() + "}";
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: JournalReader journal [type=name,...] [player=n] [slot=n] [card=n] [from=seconds] [to=seconds] [count]");
+            System.exit(2);
+        }
+        boolean[] types = null;
+        int player = Integer.MIN_VALUE, slot = Integer.MIN_VALUE, card = Integer.MIN_VALUE;
+        long from = Long.MIN_VALUE, to = Long.MAX_VALUE;
+        boolean countOnly = false;
+        for (String arg : Arrays.copyOfRange(args, 1, args.length)) {
+            String[] pair = arg.split("=", 2);
+            String value = pair.length > 1 ? pair[1] : "";
+            switch (pair[0]) {
+                case "type":
+                    types = new boolean[GameJournal.TYPE_NAMES.length];
+                    for (String name : value.split(",")) {
+                        int type = Arrays.asList(GameJournal.TYPE_NAMES).indexOf(name.trim());
+                        if (type <= 0) throw new IllegalArgumentException("unknown type " + name);
+                        types[type] = true;
+                    }
+                    break;
+                case "player": player = Integer.parseInt(value); break;
+                case "slot": slot = Integer.parseInt(value); break;
+                case "card": card = Integer.parseInt(value); break;
+                case "from": from = (long) (Double.parseDouble(value) * 1e9); break;
+                case "to": to = (long) (Double.parseDouble(value) * 1e9); break;
+                case "count": countOnly = true; break;
+                default: throw new IllegalArgumentException("unknown filter " + arg);
+            }
+        }
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+        long matched = 0, read = 0;
+        try (JournalReader reader = new JournalReader(Paths.get(args[0]))) {
+            while (reader.next()) {
+                ++read;
+                int type = reader.type();
+                if (types != null && (type >= types.length || !types[type])) continue;
+                if (player != Integer.MIN_VALUE && reader.player() != player) continue;
+                if (slot != Integer.MIN_VALUE && reader.slot() != slot) continue;
+                if (card != Integer.MIN_VALUE && reader.card() != card) continue;
+                long time = reader.timeNanos();
+                if (time < from || time >= to) continue;
+                ++matched;
+                if (!countOnly) out.println(reader);
+            }
+        }
+        out.println("{\"records\":" + read + ",\"matched\":" + matched + "}");
+        out.flush();
+    }
+}
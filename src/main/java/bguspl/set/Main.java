@@ -1,120 +1,257 @@
-package bguspl.set;
-
-import bguspl.set.ex.Dealer;
-import bguspl.set.ex.Player;
-import bguspl.set.ex.Table;
-
-import java.io.File;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.logging.*;
-
-/**
- * This class contains the game's main function.
- */
-public class Main {
-
-    private static Dealer dealer;
-    private static Thread mainThread;
-
-    private static boolean xButtonPressed = false;
-    private static Logger logger;
-
-    public static void xButtonPressed() throws InterruptedException {
-        if (logger != null) logger.severe("exit button pressed");
-        xButtonPressed = true;
-        if (dealer != null) dealer.terminate();
-        mainThread.join();
-    }
-
-    /**
-     * The game's main function. Creates all data structures and initializes the threads.
-     *
-     * @param args - unused.
-     */
-    public static void main(String[] args) {
-
-        mainThread = Thread.currentThread();
-
-        // create the game environment objects
-        logger = initLogger();
-        ThreadLogger.logStart(logger, Thread.currentThread().getName());
-        Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
-
-        Player[] players = new Player[config.players];
-        UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
-            if (config.humanPlayers > 0)
-                logger.severe("warning: running with human players with no user interface");
-        }
-        ui = new UserInterfaceDecorator(logger, util, ui);
-
-        Env env = new Env(logger, config, ui, util);
-
-        // create the game entities
-        Table table = new Table(env);
-        dealer = new Dealer(env, table, players);
-        for (int i = 0; i < players.length; i++)
-            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
-
-        // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
-        dealerThread.startWithLog();
-
-        try {
-            // shutdown stuff
-            dealerThread.joinWithLog();
-            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
-        } catch (InterruptedException ignored) {
-        } finally {
-            logger.severe("thanks for playing... it was fun!");
-            System.out.println("Thanks for playing... it was fun!");
-            ThreadLogger.logStop(logger, Thread.currentThread().getName());
-            if (!xButtonPressed) env.ui.dispose();
-            for (Handler h : logger.getHandlers()) h.flush();
-        }
-    }
-
-    private static Logger initLogger() {
-
-        //just to make our log file nicer :)
-        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
-        try {
-            //noinspection ResultOfMethodCallIgnored
-            new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
-        logger.setUseParentHandlers(false);
-        logger.addHandler(handler);
-        setLoggerLevelAndFormat(logger, Level.ALL, "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
-
-        return logger;
-    }
-
-    public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
-        Handler[] handlers = logger.getHandlers();
-        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
-            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
-            @Override
-            public synchronized String format(LogRecord lr) {
-                return String.format(format, new Date(lr.getMillis()),
-                        lr.getLevel().getLocalizedName(), lr.getMessage()
-                );
-            }
-        }));
-        logger.setLevel(level);
-    }
-}
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.GameRecord;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.*;
+
+/**
+ * This class contains the game's main function.
+ */
+public class Main {
+
+    private static Dealer dealer;
+    private static Thread mainThread;
+
+    private static boolean xButtonPressed = false;
+    private static Logger logger;
+
+    public static void xButtonPressed() throws InterruptedException {
+        if (logger != null) logger.severe("exit button pressed");
+        xButtonPressed = true;
+        if (dealer != null) dealer.terminate();
+        mainThread.join();
+    }
+
+    /**
+     * The game's main function. Creates all data structures and initializes the threads.
+     *
+     * @param args - unused.
+     */
+    public static void main(String[] args) {
+
+        mainThread = Thread.currentThread();
+
+        // create the game environment objects
+        logger = initLogger();
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        Config config = new Config(logger, "config.properties");
+        Util util = config.packedCards ? new PackedUtil(config) : new UtilImpl(config);
+        if (config.headless || !config.replayFile.isEmpty()) {
+            if (config.headless) runHeadless(config, util);
+            else replay(config, util);
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            for (Handler h : logger.getHandlers()) h.flush();
+            return;
+        }
+
+        Player[] players = new Player[config.players];
+        AsyncLogger eventLogger = new AsyncLogger(logger, config.logBufferSize);
+        UserInterface ui = null;
+        try {
+            ui = new UserInterfaceSwing(eventLogger, config, players);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            logger.severe("error creating swing user interface: " + e.getMessage());
+            logger.severe("will try to run without user interface");
+            if (config.humanPlayers > 0)
+                logger.severe("warning: running with human players with no user interface");
+        }
+        GameJournal journal = openJournal(config);
+        // the journal replaces the text log of the user interface events
+        if (journal.enabled() && ui == null) ui = new UserInterfaceHeadless();
+        else if (!journal.enabled()) ui = new UserInterfaceDecorator(eventLogger, util, ui);
+
+        GameMetrics metrics = config.metrics ? new GameMetrics(config.players) : GameMetrics.DISABLED;
+        metrics.register("bguspl.set:type=GameMetrics", logger);
+
+        Env env = new Env(logger, config, ui, util, GameThreads.of(config, logger), journal, metrics);
+
+        // create the game entities
+        Table table = new Table(env);
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        GameRecord record = null;
+        if (!config.recordFile.isEmpty()) {
+            record = new GameRecord(config.randomSeed, config.players, config.tableSize);
+            dealer.recordTo(record);
+        }
+
+        // start the dealer thread
+        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
+        dealerThread.startWithLog();
+
+        try {
+            // shutdown stuff
+            dealerThread.joinWithLog();
+            if (record != null) writeRecord(record, config.recordFile);
+            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
+        } catch (InterruptedException ignored) {
+        } finally {
+            logger.severe("thanks for playing... it was fun!");
+            System.out.println("Thanks for playing... it was fun!");
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            if (!xButtonPressed) env.ui.dispose();
+            closeJournal(journal);
+            metrics.unregister();
+            try {
+                eventLogger.close();
+            } catch (InterruptedException ignored) {}
+            for (Handler h : logger.getHandlers()) h.flush();
+        }
+    }
+
+    /**
+     * Runs config.headlessGames games of computer players as fast as possible, with no user interface, and prints out
+     * the results of each game and then their totals, each as a line of JSON (see GameStats).
+     */
+    private static void runHeadless(Config config, Util util) {
+        int concurrentGames = config.headlessConcurrentGames > 0 ? config.headlessConcurrentGames
+                : Runtime.getRuntime().availableProcessors();
+        List<GameStats> results = new ArrayList<>(config.headlessGames);
+        long start = System.currentTimeMillis();
+        try (GameHost host = new GameHost(logger, config, util, UserInterfaceHeadless::new, concurrentGames)) {
+            List<Future<GameStats>> games = new ArrayList<>(config.headlessGames);
+            for (int i = 0; i < config.headlessGames; i++)
+                games.add(host.submit());
+            for (Future<GameStats> game : games) {
+                GameStats stats = game.get();
+                results.add(stats);
+                System.out.println(stats);
+            }
+        } catch (InterruptedException ignored) {
+        } catch (ExecutionException e) {
+            logger.severe("headless game failed: " + e.getCause());
+        }
+        System.out.println(GameStats.summary(results, System.currentTimeMillis() - start));
+    }
+
+    private static GameJournal openJournal(Config config) {
+        if (config.journalFile.isEmpty()) return GameJournal.DISABLED;
+        try {
+            return GameJournal.open(new File(config.journalFile).toPath(), config.journalMaxBytes);
+        } catch (IOException e) {
+            logger.severe("error opening game journal " + config.journalFile + ": " + e.getMessage());
+            return GameJournal.DISABLED;
+        }
+    }
+
+    private static void closeJournal(GameJournal journal) {
+        if (!journal.enabled()) return;
+        long written = journal.written(), dropped = journal.dropped();
+        try {
+            journal.close();
+            logger.info("journaled " + written + " events (" + dropped + " dropped)");
+        } catch (IOException e) {
+            logger.severe("error closing game journal: " + e.getMessage());
+        }
+    }
+
+    private static void writeRecord(GameRecord record, String filename) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename))) {
+            record.write(out);
+            logger.info("recorded " + record.size() + " events to " + filename);
+        } catch (IOException e) {
+            logger.severe("error writing game record " + filename + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the game recorded in config.replayFile as fast as possible, with no user interface, checks that it ends
+     * as recorded and prints out the result as a line of JSON (the replay doubles as a fixed benchmark workload).
+     */
+    private static void replay(Config config, Util util) {
+        GameRecord original;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(config.replayFile))) {
+            original = GameRecord.read(in);
+        } catch (IOException e) {
+            logger.severe("error reading game record " + config.replayFile + ": " + e.getMessage());
+            return;
+        }
+
+        // the game is replayed with the recorded seed, and the rest of the configuration
+        Properties properties = Config.loadProperties("config.properties", logger);
+        properties.setProperty("RandomSeed", Long.toString(original.seed));
+        config = new Config(logger, properties);
+        if (config.players != original.players || config.tableSize != original.tableSize) {
+            logger.severe("the game record is of " + original.players + " players and " + original.tableSize
+                    + " slots, but the configuration is of " + config.players + " players and " + config.tableSize + " slots");
+            return;
+        }
+
+        Env env = new Env(logger, config, new UserInterfaceHeadless(), util);
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < config.humanPlayers);
+        GameRecord replayed = new GameRecord(original.seed, original.players, original.tableSize);
+        dealer.recordTo(replayed);
+        dealer.replayFrom(original);
+
+        long start = System.nanoTime();
+        dealer.run();
+        long elapsed = System.nanoTime() - start;
+        boolean matched = original.matches(replayed);
+        if (!matched) logger.severe("the replay of " + config.replayFile + " did not end as recorded");
+        System.out.println("{\"replay\":\"" + config.replayFile.replace("\\", "\\\\").replace("\"", "\\\"")
+                + "\",\"events\":" + original.size() + ",\"durationMillis\":" + elapsed / 1_000_000
+                + ",\"eventsPerSecond\":" + String.format(Locale.ROOT, "%.0f", original.size() * 1e9 / Math.max(elapsed, 1))
+                + ",\"matched\":" + matched + ",\"scores\":" + Arrays.toString(replayed.scores()).replace(" ", "") + "}");
+    }
+
+    private static Logger initLogger() {
+
+        //just to make our log file nicer :)
+        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
+        FileHandler handler;
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            new File("./logs/").mkdirs();
+            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        setLoggerLevelAndFormat(logger, Level.ALL, "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+
+        return logger;
+    }
+
+    public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
+        Handler[] handlers = logger.getHandlers();
+        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
+            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
+            @Override
+            public synchronized String format(LogRecord lr) {
+                return String.format(format, new Date(lr.getMillis()),
+                        lr.getLevel().getLocalizedName(), lr.getMessage()
+                );
+            }
+        }));
+        logger.setLevel(level);
+    }
+}
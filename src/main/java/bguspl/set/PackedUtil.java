@@ -0,0 +1,158 @@
+package bguspl.set;
+
+/**
+ * An implementation of the Util interface over bit-packed cards.
+ * Each feature of a card is stored one-hot in a field of featureSize bits (bit v is set iff the feature's value is v),
+ * and as many fields as fit are packed into each long (a single long for all but the largest configurations).
+ * With this representation, a feature is "all same" in a group of cards iff the AND of their fields is not empty,
+ * and "all different" iff the OR of their fields is full, so all the features of a word are checked at once.
+ * Features of more than 64 values do not fit in a long, in which case the generic implementation is used.
+ */
+public class PackedUtil extends UtilImpl {
+
+    /**
+     * The number of bits in each field (i.e. featureSize).
+     */
+    private final int fieldBits;
+
+    /**
+     * The number of longs per card.
+     */
+    private final int words;
+
+    /**
+     * The packed cards: the words of card c are in [c * words, (c + 1) * words) (null if a field does not fit).
+     */
+    private final long[] packed;
+
+    /**
+     * Per word: all the bits that belong to fields, the top bit of each field, and the number of fields.
+     */
+    private final long[] fullMask;
+    private final long[] topMask;
+    private final int[] fieldCount;
+
+    /**
+     * The value each bit of each word contributes to the card id (its value times the weight of its feature).
+     */
+    private final int[][] bitWeights;
+
+    public PackedUtil(Config config) {
+        super(config);
+        fieldBits = Math.max(config.featureSize, 1);
+        int fieldsPerWord = Math.max(Long.SIZE / fieldBits, 1);
+        words = Math.max((config.featureCount + fieldsPerWord - 1) / fieldsPerWord, 1);
+
+        fullMask = new long[words];
+        topMask = new long[words];
+        fieldCount = new int[words];
+        bitWeights = new int[words][Long.SIZE];
+        packed = fieldBits <= Long.SIZE ? new long[config.deckSize * words] : null;
+        if (packed == null) return;
+
+        for (int feature = 0, weight = 1; feature < config.featureCount; ++feature, weight *= config.featureSize) {
+            int field = config.featureCount - 1 - feature; // the feature with weight 1 is the last one
+            int word = field / fieldsPerWord, offset = field % fieldsPerWord * fieldBits;
+            fullMask[word] |= fieldMask(offset);
+            topMask[word] |= 1L << (offset + fieldBits - 1);
+            fieldCount[word]++;
+            for (int value = 0; value < config.featureSize; ++value)
+                bitWeights[word][offset + value] = value * weight;
+        }
+
+        for (int card = 0; card < config.deckSize; ++card) {
+            int[] features = cardToFeatures(card);
+            for (int field = 0; field < config.featureCount; ++field)
+                packed[card * words + field / fieldsPerWord] |= 1L << (field % fieldsPerWord * fieldBits + features[field]);
+        }
+    }
+
+    private long fieldMask(int offset) {
+        return (fieldBits == Long.SIZE ? -1L : (1L << fieldBits) - 1) << offset;
+    }
+
+    /**
+     * @param x    - a word of fields.
+     * @param word - the index of the word.
+     * @return - the top bit of every field of x that is not empty.
+     */
+    private long nonEmptyFields(long x, int word) {
+        long top = topMask[word];
+        long low = fullMask[word] & ~top;
+        return (((x & low) + low) | x) & top;
+    }
+
+    /**
+     * @param fields - the top bit of some fields.
+     * @return - all the bits of those fields.
+     */
+    private long spread(long fields) {
+        return fields | (fields - (fields >>> (fieldBits - 1)));
+    }
+
+    @Override
+    public boolean testSet(int[] cards, int length) {
+        // the packed test covers full sets, other sizes are left to the generic test
+        if (packed == null || length != fieldBits || length < 2) return super.testSet(cards, length);
+
+        for (int word = 0; word < words; ++word) {
+            long and = -1L, or = 0L;
+            for (int i = 0; i < length; ++i) {
+                long x = packed[cards[i] * words + word];
+                and &= x;
+                or |= x;
+            }
+            long sameSame = nonEmptyFields(and, word);
+            long notButDifferent = nonEmptyFields(~or & fullMask[word], word);
+            if ((sameSame | ~notButDifferent & topMask[word]) != topMask[word]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected int thirdCard(int first, int second) {
+        if (packed == null) return super.thirdCard(first, second);
+        int third = 0;
+        for (int word = 0; word < words; ++word) {
+            long a = packed[first * words + word], b = packed[second * words + word];
+            long same = spread(nonEmptyFields(a & b, word));
+            third += decode((a & same) | (~(a | b) & fullMask[word] & ~same), word);
+        }
+        return third;
+    }
+
+    @Override
+    public int completeSet(int[] cards, int length) {
+        if (packed == null) return super.completeSet(cards, length);
+        if (length < 2 || length != fieldBits - 1) return -1;
+
+        int completion = 0;
+        for (int word = 0; word < words; ++word) {
+            long and = -1L, or = 0L;
+            for (int i = 0; i < length; ++i) {
+                long x = packed[cards[i] * words + word];
+                and &= x;
+                or |= x;
+            }
+            long same = spread(nonEmptyFields(and, word));
+            long missing = (and & same) | (~or & fullMask[word] & ~same);
+
+            // every field has at least one bit, and all different fields have exactly one iff their values are distinct
+            if (Long.bitCount(missing) != fieldCount[word]) return -1;
+            completion += decode(missing, word);
+        }
+        return completion;
+    }
+
+    /**
+     * @param x    - a word with a single bit in every field.
+     * @param word - the index of the word.
+     * @return - the contribution of the word to the card id.
+     */
+    private int decode(long x, int word) {
+        int id = 0;
+        for (; x != 0; x &= x - 1)
+            id += bitWeights[word][Long.numberOfTrailingZeros(x)];
+        return id;
+    }
+}
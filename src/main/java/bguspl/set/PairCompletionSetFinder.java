@@ -0,0 +1,50 @@
+package bguspl.set;
+
+import java.util.function.IntBinaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * Finds legal sets of 3 cards by completing pairs.
+ * Any two cards determine the (single) third card that completes them into a legal set, so instead of validating
+ * every triplet of cards it is enough to compute the completing card of each pair and check whether it is present.
+ */
+final class PairCompletionSetFinder extends SetFinder {
+
+    /**
+     * Computes the card that completes two cards into a legal set.
+     */
+    private final IntBinaryOperator thirdCard;
+
+    /**
+     * @param deckSize          - the total number of cards in the deck.
+     * @param parallelThreshold - the minimal number of cards for which the search runs in parallel.
+     * @param thirdCard         - a function computing the card that completes two cards into a legal set.
+     */
+    PairCompletionSetFinder(int deckSize, int parallelThreshold, IntBinaryOperator thirdCard) {
+        super(deckSize, parallelThreshold);
+        this.thirdCard = thirdCard;
+    }
+
+    @Override
+    void search(int[] cards, long[] present, int from, int to, Limit limit, Predicate<int[]> sink) {
+        int n = cards.length;
+        int[] set = new int[3];
+        long nodes = 0;
+
+        // a set {a < b < c} is only reported from its two smallest cards
+        search:
+        for (int first = from; first < to && !limit.reached(); ++first)
+            for (int second = first + 1; second < n - 1; ++second) {
+                ++nodes;
+                int a = cards[first], b = cards[second];
+                int c = thirdCard.applyAsInt(a, b);
+                if (c > b && (present[c >>> 6] & (1L << c)) != 0) {
+                    set[0] = a;
+                    set[1] = b;
+                    set[2] = c;
+                    if (limit.found(set, sink)) break search;
+                }
+            }
+        limit.visited(nodes);
+    }
+}
@@ -0,0 +1,133 @@
+package bguspl.set;
+
+import java.util.function.Predicate;
+
+/**
+ * Finds legal sets by extending partial combinations one card at a time, checking the feature constraints on the way.
+ * For every feature, the values seen so far are kept as a bitmask: the feature can still end up "all same" iff the
+ * mask has a single value, and "all different" iff it has a value per card. A partial combination that fails both for
+ * any feature is dropped together with all its extensions. The last card of a set is not searched for: it is computed
+ * from the masks of the other cards (the single value, or the missing one) and looked up in the collection.
+ */
+final class PrunedSetFinder extends SetFinder {
+
+    /**
+     * The number of cards in a legal set.
+     */
+    private final int setSize;
+
+    /**
+     * The number of features on the cards.
+     */
+    private final int featureCount;
+
+    /**
+     * The features of all the cards in the deck and the weight of each feature in the card id (shared with UtilImpl).
+     */
+    private final byte[] features;
+    private final int[] featureWeights;
+
+    /**
+     * @param config - the game configuration (config.featureSize must be between 3 and 31).
+     * @param util   - the utilities whose feature table is used.
+     */
+    PrunedSetFinder(Config config, UtilImpl util) {
+        super(config.deckSize, config.findSetsParallelThreshold);
+        setSize = config.featureSize;
+        featureCount = config.featureCount;
+        features = util.features;
+        featureWeights = util.featureWeights;
+    }
+
+    /**
+     * The state of a search worker.
+     */
+    private final class Search {
+
+        final int[] cards;
+        final long[] present;
+        final Limit limit;
+        final Predicate<int[]> sink;
+
+        /**
+         * The indices of the cards chosen, and the masks of feature values after each of them was chosen.
+         */
+        final int[] chosen = new int[setSize];
+        final int[] set = new int[setSize];
+        final int[][] masks = new int[setSize][featureCount];
+        long nodes;
+
+        Search(int[] cards, long[] present, Limit limit, Predicate<int[]> sink) {
+            this.cards = cards;
+            this.present = present;
+            this.limit = limit;
+            this.sink = sink;
+        }
+
+        /**
+         * Tries every card from index start on as the card at the given depth.
+         *
+         * @return - true iff the search should stop.
+         */
+        boolean extend(int depth, int start) {
+            // leave room for at least one larger card (the computed last card)
+            for (int index = start; index < cards.length - 1; ++index) {
+                ++nodes;
+                if (!choose(depth, index)) continue;
+                if (depth == setSize - 2 ? complete() : extend(depth + 1, index + 1)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Chooses a card at a depth and updates the masks.
+         *
+         * @return - false iff some feature can no longer be "all same" nor "all different".
+         */
+        boolean choose(int depth, int index) {
+            chosen[depth] = index;
+            int card = cards[index];
+            for (int i = 0; i < featureCount; ++i) {
+                int mask = 1 << features[card * featureCount + i];
+                if (depth > 0) mask |= masks[depth - 1][i];
+                int values = Integer.bitCount(mask);
+                if (values != 1 && values != depth + 1) return false;
+                masks[depth][i] = mask;
+            }
+            return true;
+        }
+
+        /**
+         * Computes the card completing the chosen cards and reports the set if it is in the collection.
+         *
+         * @return - true iff the search should stop.
+         */
+        boolean complete() {
+            int depth = setSize - 2;
+            int last = cards[chosen[depth]];
+            int completion = 0;
+            for (int i = 0; i < featureCount; ++i) {
+                int mask = masks[depth][i];
+                int value = Integer.bitCount(mask) == 1 ? mask : ~mask & ((1 << setSize) - 1);
+                completion += Integer.numberOfTrailingZeros(value) * featureWeights[i];
+            }
+            if (completion <= last || (present[completion >>> 6] & (1L << completion)) == 0) return false;
+
+            for (int i = 0; i <= depth; ++i)
+                set[i] = cards[chosen[i]];
+            set[setSize - 1] = completion;
+            return limit.found(set, sink);
+        }
+    }
+
+    @Override
+    void search(int[] cards, long[] present, int from, int to, Limit limit, Predicate<int[]> sink) {
+        Search search = new Search(cards, present, limit, sink);
+        for (int first = from; first < to && first < cards.length - 1 && !limit.reached(); ++first) {
+            ++search.nodes;
+            search.choose(0, first);
+            if (search.extend(1, first + 1)) break;
+        }
+        limit.visited(search.nodes);
+    }
+}
@@ -0,0 +1,228 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A search engine for legal sets in a collection of cards.
+ * The search space is split by the smallest card of each set, so large collections are searched in parallel on the
+ * common fork/join pool (each worker covers a range of smallest cards, and the results are joined in order).
+ * Sets are produced one at a time into a sink, in a buffer owned by the search (a sink that keeps a set copies it).
+ */
+abstract class SetFinder {
+
+    /**
+     * The total number of cards in the deck.
+     */
+    protected final int deckSize;
+
+    /**
+     * The minimal number of cards for which the search runs in parallel (0 or less never does).
+     */
+    private final int parallelThreshold;
+
+    /**
+     * @param deckSize          - the total number of cards in the deck.
+     * @param parallelThreshold - the minimal number of cards for which the search runs in parallel.
+     */
+    SetFinder(int deckSize, int parallelThreshold) {
+        this.deckSize = deckSize;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Counts the sets found by all the workers of a single search, and stops them all when there are enough.
+     * Optionally, also sums up the number of search nodes (i.e. candidates examined) of all the workers.
+     */
+    static final class Limit {
+
+        private final int count;
+        private final AtomicInteger found = new AtomicInteger();
+        private volatile boolean reached;
+        private final LongAdder nodes;
+
+        Limit(int count, LongAdder nodes) {
+            this.count = count;
+            this.nodes = nodes;
+        }
+
+        /**
+         * Adds the number of search nodes a worker visited (called once per searched range).
+         */
+        void visited(long nodes) {
+            if (this.nodes != null) this.nodes.add(nodes);
+        }
+
+        /**
+         * @return - true iff the search should stop.
+         */
+        boolean reached() {
+            return reached;
+        }
+
+        /**
+         * Reports a set that was found to the sink, if there is still place for it.
+         *
+         * @param set  - the cards of the set (in a buffer owned by the worker).
+         * @param sink - the sink of the sets (null if the sets are only counted).
+         * @return - true iff the search should stop.
+         */
+        boolean found(int[] set, Predicate<int[]> sink) {
+            int found = this.found.incrementAndGet();
+            if (found >= count) reached = true;
+            if (found > 1 && found > count) return true;
+            if (sink != null && !sink.test(set)) reached = true;
+            return reached;
+        }
+
+        /**
+         * @return - the number of sets reported.
+         */
+        int reported() {
+            return Math.min(found.get(), Math.max(count, 1));
+        }
+    }
+
+    /**
+     * Passes the sets in the given collection of cards to an action, one at a time and in order, until it returns
+     * false (see Util.forEachSet). The search always runs on the calling thread, so it stops right away.
+     *
+     * @param deck   - a collection of cards (may not include null objects).
+     * @param action - called with each set found, returns false to stop the search.
+     * @return - the number of sets passed to the action.
+     */
+    final int forEachSet(List<Integer> deck, Predicate<int[]> action) {
+        int[] cards = sortedCards(deck);
+        Limit limit = new Limit(Integer.MAX_VALUE, null);
+        search(cards, bitmap(cards), 0, cards.length, limit, action);
+        return limit.reported();
+    }
+
+    /**
+     * Counts up to count sets in the given collection of cards, without keeping them (see Util.countSets).
+     *
+     * @param deck  - a collection of cards (may not include null objects).
+     * @param count - the maximum number of sets to count.
+     * @return - the number of sets found (up to count).
+     */
+    final int countSets(List<Integer> deck, int count) {
+        Limit limit = new Limit(count, null);
+        run(sortedCards(deck), limit, false);
+        return limit.reported();
+    }
+
+    /**
+     * Finds and returns up to count sets in the given collection of cards (see Util.findSets).
+     * When count is not reached, the result is the same for the sequential and the parallel search.
+     *
+     * @param deck  - a collection of cards (may not include null objects).
+     * @param count - the maximum number of sets to find.
+     * @return - a list of up to count integer arrays, each one contains the (sorted) card ids of a legal set.
+     */
+    final List<int[]> findSets(List<Integer> deck, int count) {
+        return findSets(deck, count, null);
+    }
+
+    /**
+     * Same as findSets(deck, count), and adds the number of search nodes visited to nodes (for benchmarking).
+     */
+    final List<int[]> findSets(List<Integer> deck, int count, LongAdder nodes) {
+        return new LinkedList<>(run(sortedCards(deck), new Limit(count, nodes), true));
+    }
+
+    /**
+     * Runs a search over all the cards, sequentially or in parallel according to the number of cards.
+     *
+     * @param collect - true iff the sets should be kept (otherwise they are only counted).
+     * @return - the sets found, in order (empty if not collected).
+     */
+    private List<int[]> run(int[] cards, Limit limit, boolean collect) {
+        long[] present = bitmap(cards);
+        if (parallelThreshold <= 0 || cards.length < parallelThreshold) {
+            List<int[]> sets = new ArrayList<>();
+            search(cards, present, 0, cards.length, limit, collect ? set -> sets.add(set.clone()) : null);
+            return sets;
+        }
+        int grain = Math.max(1, cards.length / (ForkJoinPool.getCommonPoolParallelism() * 8));
+        return ForkJoinPool.commonPool().invoke(new SearchTask(cards, present, 0, cards.length, grain, limit, collect));
+    }
+
+    private static int[] sortedCards(List<Integer> deck) {
+        int[] cards = new int[deck.size()];
+        int i = 0;
+        for (int card : deck)
+            cards[i++] = card;
+        Arrays.sort(cards);
+        return cards;
+    }
+
+    /**
+     * @return - a bitmap of the given cards.
+     */
+    private long[] bitmap(int[] cards) {
+        long[] present = new long[(deckSize + 63) >>> 6];
+        for (int card : cards)
+            present[card >>> 6] |= 1L << card;
+        return present;
+    }
+
+    /**
+     * Finds the sets whose smallest card is one of cards[from..to), in ascending order of that card, and reports
+     * each of them through limit.found.
+     *
+     * @param cards   - the cards searched, in ascending order.
+     * @param present - a bitmap of the cards searched.
+     * @param from    - the index of the first smallest card to cover.
+     * @param to      - the index after the last smallest card to cover.
+     * @param limit   - the limit on the sets found (shared by all the workers of the search).
+     * @param sink    - the sink of the sets found (null if the sets are only counted).
+     */
+    abstract void search(int[] cards, long[] present, int from, int to, Limit limit, Predicate<int[]> sink);
+
+    /**
+     * A fork/join task searching a range of smallest cards.
+     */
+    private final class SearchTask extends RecursiveTask<List<int[]>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] cards;
+        private final long[] present;
+        private final int from, to, grain;
+        private final Limit limit;
+        private final boolean collect;
+
+        SearchTask(int[] cards, long[] present, int from, int to, int grain, Limit limit, boolean collect) {
+            this.cards = cards;
+            this.present = present;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.limit = limit;
+            this.collect = collect;
+        }
+
+        @Override
+        protected List<int[]> compute() {
+            if (limit.reached()) return new ArrayList<>();
+            if (to - from <= grain) {
+                List<int[]> sets = new ArrayList<>();
+                search(cards, present, from, to, limit, collect ? set -> sets.add(set.clone()) : null);
+                return sets;
+            }
+            int middle = (from + to) >>> 1;
+            SearchTask right = new SearchTask(cards, present, middle, to, grain, limit, collect);
+            right.fork();
+            List<int[]> sets = new SearchTask(cards, present, from, middle, grain, limit, collect).compute();
+            sets.addAll(right.join());
+            return sets;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package bguspl.set;
+
+/**
+ * A user interface that displays nothing, for games with no one watching (see Main::runHeadless).
+ * It only records the winners announced, so the end of a game can still be checked.
+ */
+public class UserInterfaceHeadless implements UserInterface {
+
+    private volatile int[] winners;
+
+    /**
+     * @return - the players announced as the winners (null if the game did not end).
+     */
+    public int[] winners() {
+        return winners;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+    }
+
+    @Override
+    public void removeCard(int slot) {
+    }
+
+    @Override
+    public void replaceCards(int[] slots, int[] cards) {
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+    }
+
+    @Override
+    public void removeTokens() {
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        winners = players;
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
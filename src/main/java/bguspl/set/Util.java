@@ -1,47 +1,86 @@
-package bguspl.set;
-
-import java.util.List;
-
-/**
- * An interface for general utilities provided for convenience.
- */
-public interface Util {
-
-    /**
-     * Converts a card id to an array of features (of config.featureCount values between 0 and config.featuresSize - 1)
-     *
-     * @param card - the card id.
-     * @return - the array of features.
-     */
-    int[] cardToFeatures(int card);
-
-    /**
-     * Converts an array of card ids to an array of features (see cardToFeatures method).
-     *
-     * @param cards - an array of card ids.
-     * @return - a 2d array of features (respectively).
-     */
-    int[][] cardsToFeatures(int[] cards);
-
-    /**
-     * Checks if an array of cards forms a legal set.
-     *
-     * @param cards - the array of cards.
-     * @return - true iff the array forms a legal set.
-     */
-    boolean testSet(int[] cards);
-
-    /**
-     * Finds and returns up to count sets in the given collection of cards.
-     *
-     * @param deck  - a collection of cards (may not include null objects).
-     * @param count - the maximum number of sets to find.
-     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set.
-     */
-    List<int[]> findSets(List<Integer> deck, int count);
-
-    /**
-     * Spin a random number of times (for debugging/testing).
-     */
-    void spin();
-}
+package bguspl.set;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * An interface for general utilities provided for convenience.
+ */
+public interface Util {
+
+    /**
+     * Converts a card id to an array of features (of config.featureCount values between 0 and config.featuresSize - 1)
+     *
+     * @param card - the card id.
+     * @return - the array of features.
+     */
+    int[] cardToFeatures(int card);
+
+    /**
+     * Converts an array of card ids to an array of features (see cardToFeatures method).
+     *
+     * @param cards - an array of card ids.
+     * @return - a 2d array of features (respectively).
+     */
+    int[][] cardsToFeatures(int[] cards);
+
+    /**
+     * Checks if an array of cards forms a legal set.
+     *
+     * @param cards - the array of cards.
+     * @return - true iff the array forms a legal set.
+     */
+    boolean testSet(int[] cards);
+
+    /**
+     * Checks if the first cards of an array form a legal set (without allocating any memory).
+     *
+     * @param cards  - the array of cards.
+     * @param length - the number of cards to test from the beginning of the array.
+     * @return - true iff the first length cards of the array form a legal set.
+     */
+    boolean testSet(int[] cards, int length);
+
+    /**
+     * Computes the card that completes the given cards into a legal set.
+     *
+     * @param cards  - an array of card ids.
+     * @param length - the number of cards to use from the beginning of the array (config.featureSize - 1).
+     * @return - the card id that completes the cards into a legal set, or -1 if there is no such card.
+     */
+    int completeSet(int[] cards, int length);
+
+    /**
+     * Finds and returns up to count sets in the given collection of cards.
+     *
+     * @param deck  - a collection of cards (may not include null objects).
+     * @param count - the maximum number of sets to find.
+     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set.
+     */
+    List<int[]> findSets(List<Integer> deck, int count);
+
+    /**
+     * Finds the sets in the given collection of cards lazily: each set is passed to the action as soon as it is found,
+     * and the search stops as soon as the action returns false.
+     * Note: the array passed to the action may be reused for the next set, so it should be copied to be kept.
+     *
+     * @param deck   - a collection of cards (may not include null objects).
+     * @param action - called with the card ids of each legal set found, returns false to stop the search.
+     * @return - the number of sets passed to the action.
+     */
+    int forEachSet(List<Integer> deck, Predicate<int[]> action);
+
+    /**
+     * Counts up to count sets in the given collection of cards, without keeping them.
+     *
+     * @param deck  - a collection of cards (may not include null objects).
+     * @param count - the maximum number of sets to count.
+     * @return - the number of legal sets found (up to count).
+     */
+    int countSets(List<Integer> deck, int count);
+
+    /**
+     * Spin a random number of times (for debugging/testing).
+     */
+    void spin();
+}
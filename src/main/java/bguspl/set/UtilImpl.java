@@ -1,99 +1,200 @@
-package bguspl.set;
-
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.IntStream;
-
-/**
- * The implementation of the UserInterface interface.
- */
-public class UtilImpl implements Util {
-
-    private final Config config;
-
-    public UtilImpl(Config config) {
-        this.config = config;
-    }
-
-    private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
-    }
-
-    @Override
-    public int[] cardToFeatures(int card) {
-        int[] features = new int[config.featureCount];
-        cardToFeatures(card, features);
-        return features;
-    }
-
-    @Override
-    public int[][] cardsToFeatures(int[] cards) {
-        int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
-        return features;
-    }
-
-    @Override
-    public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
-        for (int i = 0; i < config.featureCount; ++i) {
-            boolean sameSame = true, butDifferent = true;
-
-            // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
-                    sameSame = false;
-                    break;
-                }
-
-            // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
-                        butDifferent = false;
-                        break;
-                    }
-
-            if (sameSame == butDifferent) return false;
-        }
-        return true;
-    }
-
-    @Override
-    public List<int[]> findSets(List<Integer> deck, int count) {
-        LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
-        int r = config.featureSize;
-        int[] combination = new int[r];
-
-        for (int i = 0; i < r; ++i)
-            combination[i] = i;
-
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
-            }
-
-            // generate next combination in lexicographic order
-            int t = r - 1;
-            while (t != 0 && combination[t] == n - r + t) --t;
-            combination[t]++;
-            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
-        }
-        return sets;
-    }
-
-    public void spin() {
-        if (config.randomSpinMax <= 0) return;
-        long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
-        for (int i = 0; i < cycles; ++i)
-            Thread.yield();
-    }
-}
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * The implementation of the UserInterface interface.
+ */
+public class UtilImpl implements Util {
+
+    private final Config config;
+
+    /**
+     * The set finder used by findSets: pairs are completed when sets are made of 3 cards (i.e. any 2 cards determine
+     * the 3rd), larger sets are searched with constraint pruning and the rest by testing all combinations.
+     */
+    private final SetFinder finder;
+
+    /**
+     * The weight of each feature in the card id (i.e. featureSize ^ (featureCount - 1 - feature)).
+     */
+    final int[] featureWeights;
+
+    /**
+     * The features of all the cards in the deck, computed once: the features of card c are in
+     * [c * featureCount, (c + 1) * featureCount). Shared with PrunedSetFinder, which must not modify it.
+     */
+    final byte[] features;
+
+    public UtilImpl(Config config) {
+        this.config = config;
+        featureWeights = new int[config.featureCount];
+        for (int i = config.featureCount - 1, weight = 1; i >= 0; --i, weight *= config.featureSize)
+            featureWeights[i] = weight;
+        features = new byte[config.deckSize * config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            for (int i = config.featureCount - 1, id = card; i >= 0; --i, id /= config.featureSize)
+                features[card * config.featureCount + i] = (byte) (id % config.featureSize);
+        if (config.featureSize == 3)
+            finder = new PairCompletionSetFinder(config.deckSize, config.findSetsParallelThreshold, this::thirdCard);
+        else if (config.featureSize > 3 && config.featureSize < Integer.SIZE)
+            finder = new PrunedSetFinder(config, this);
+        else
+            finder = new CombinationSetFinder(config.deckSize, config.findSetsParallelThreshold, this, config.featureSize);
+    }
+
+    /**
+     * @param card    - the card id.
+     * @param feature - the feature index.
+     * @return - the value of the feature in the card.
+     */
+    private int feature(int card, int feature) {
+        return features[card * config.featureCount + feature] & 0xFF;
+    }
+
+    @Override
+    public int[] cardToFeatures(int card) {
+        int[] cardFeatures = new int[config.featureCount];
+        for (int i = 0; i < config.featureCount; ++i)
+            cardFeatures[i] = feature(card, i);
+        return cardFeatures;
+    }
+
+    @Override
+    public int[][] cardsToFeatures(int[] cards) {
+        int[][] cardsFeatures = new int[cards.length][];
+        for (int i = 0; i < cards.length; ++i)
+            cardsFeatures[i] = cardToFeatures(cards[i]);
+        return cardsFeatures;
+    }
+
+    @Override
+    public boolean testSet(int[] cards) {
+        return testSet(cards, cards.length);
+    }
+
+    @Override
+    public boolean testSet(int[] cards, int length) {
+        for (int i = 0; i < config.featureCount; ++i) {
+            boolean sameSame = true, butDifferent = true;
+            int first = length > 0 ? feature(cards[0], i) : 0;
+
+            // check if this features is sameSame in all cards
+            for (int j = 1; j < length; ++j)
+                if (first != feature(cards[j], i)) {
+                    sameSame = false;
+                    break;
+                }
+
+            // check if this feature is butDifferent in all cards
+            for (int j = 1; j < length && butDifferent; ++j) {
+                int value = feature(cards[j], i);
+                for (int k = 0; k < j; ++k)
+                    if (feature(cards[k], i) == value) {
+                        butDifferent = false;
+                        break;
+                    }
+            }
+
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the card that completes two cards into a legal set of 3 cards: in each feature, the third card has the
+     * same value if the two cards agree and the remaining value otherwise.
+     *
+     * @param first  - the first card id.
+     * @param second - the second card id.
+     * @return - the card id completing the set.
+     * @pre - config.featureSize == 3
+     */
+    protected int thirdCard(int first, int second) {
+        int third = 0;
+        for (int i = 0; i < config.featureCount; ++i)
+            third += (6 - feature(first, i) - feature(second, i)) % 3 * featureWeights[i];
+        return third;
+    }
+
+    @Override
+    public int completeSet(int[] cards, int length) {
+        if (length < 2 || length != config.featureSize - 1) return -1;
+        if (length == 2) return thirdCard(cards[0], cards[1]);
+
+        int completion = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            int first = feature(cards[0], i);
+            boolean sameSame = true, butDifferent = true;
+            int sum = first;
+            for (int j = 1; j < length; ++j) {
+                int value = feature(cards[j], i);
+                if (value != first) sameSame = false;
+                for (int k = 0; k < j && butDifferent; ++k)
+                    if (feature(cards[k], i) == value) butDifferent = false;
+                sum += value;
+            }
+
+            // the missing value of all different features is the total of all values minus the ones present
+            if (sameSame) completion += first * featureWeights[i];
+            else if (butDifferent) completion += (config.featureSize * (config.featureSize - 1) / 2 - sum) * featureWeights[i];
+            else return -1;
+        }
+        return completion;
+    }
+
+    @Override
+    public List<int[]> findSets(List<Integer> deck, int count) {
+        return finder.findSets(deck, count);
+    }
+
+    @Override
+    public int forEachSet(List<Integer> deck, Predicate<int[]> action) {
+        return finder.forEachSet(deck, action);
+    }
+
+    @Override
+    public int countSets(List<Integer> deck, int count) {
+        return finder.countSets(deck, count);
+    }
+
+    /**
+     * Finds sets by testing every combination of config.featureSize cards in the collection (see findSets method).
+     * This is the straightforward sequential search, kept as a reference for the other set finders.
+     */
+    public List<int[]> enumerateSets(List<Integer> deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        int n = deck.size();
+        int r = config.featureSize;
+        int[] combination = new int[r];
+
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
+
+        while (combination[r - 1] < deck.size()) {
+            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+            if (testSet(cards)) {
+                sets.add(cards);
+                if (sets.size() >= count) return sets;
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return sets;
+    }
+
+    public void spin() {
+        if (config.randomSpinMax <= 0) return;
+        long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
+        for (int i = 0; i < cycles; ++i)
+            Thread.yield();
+    }
+}
@@ -0,0 +1,37 @@
+package bguspl.set.ex;
+
+/**
+ * A set submitted by a player for the dealer to check.
+ * The claim keeps the table as the player saw it, so the dealer can tell whether the table changed since.
+ */
+class Claim {
+
+    /**
+     * The id of the player who submitted the set.
+     */
+    final int player;
+
+    /**
+     * The version of the table when the set was submitted (see Table::getVersion).
+     */
+    final long version;
+
+    /**
+     * The time when the set was submitted (System::nanoTime), which orders the claims.
+     */
+    final long time;
+
+    /**
+     * The slots of the player's tokens, and the cards that were in them.
+     */
+    final int[] slots;
+    final int[] cards;
+
+    Claim(int player, long version, long time, int[] slots, int[] cards) {
+        this.player = player;
+        this.version = version;
+        this.time = time;
+        this.slots = slots;
+        this.cards = cards;
+    }
+}
@@ -1,296 +1,898 @@
-package bguspl.set.ex;
-import bguspl.set.Env;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
-
-/**
- * This class manages the dealer's threads and data
- */
-public class Dealer implements Runnable {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * Game entities.
-     */
-    private final Table table;
-    private final Player[] players;
-
-    /**
-     * The list of card ids that are left in the dealer's deck.
-     */
-    private final List<Integer> deck;
-
-    /**
-     * True iff game should be terminated.
-     */
-    private volatile boolean terminate;
-
-    /**
-     * The time when the dealer needs to reshuffle the deck due to turn timeout.
-     */
-    private long reshuffleTime = Long.MAX_VALUE;
-
-    public BlockingQueue<Integer> sets;
-    private final Object lock;
-    private Thread dealerThread;
-    private Thread[] playersOfThreads;
-    boolean placeAll;
-    int[] slotsOfPlayer;
-
-    public Dealer(Env env, Table table, Player[] players) {
-        this.env = env;
-        this.table = table;
-        this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        this.sets = new ArrayBlockingQueue<Integer>(env.config.players, true);
-        lock = new Object();
-        dealerThread = Thread.currentThread();
-        playersOfThreads = new Thread[players.length];
-        placeAll = true;
-        slotsOfPlayer = null;
-    }
-
-    /**
-     * The dealer thread starts here (main loop for the dealer thread).
-     */
-    @Override
-    public void run() {
-        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-
-        for(int i = 0; i < playersOfThreads.length; i++){
-            playersOfThreads[i] = new Thread(players[i]);
-            playersOfThreads[i].start();
-        }
-
-        while (!shouldFinish()){
-            placeAll = true;
-            table.beforeDealerAction();
-            placeCardsOnTable();
-            table.afterDealerAction();
-            placeAll = false;
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 99; 
-            table.setTableAvaliable(true);
-            timerLoop();
-            updateTimerDisplay(true);
-            table.setTableAvaliable(false);
-            table.beforeDealerAction();
-            removeAllCardsFromTable();
-            table.afterDealerAction();
-        }
-
-        if(terminate == false){
-            terminate();
-        }
-        announceWinners();
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-    }
-
-    /**
-     * The inner loop of the dealer thread that runs as long as the countdown did not time out.
-     */
-    private void timerLoop() {
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
-            table.setTableAvaliable(true);
-            sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
-            table.setTableAvaliable(false);
-            table.beforeDealerAction();
-            removeCardsFromTable();
-            placeCardsOnTable();
-            table.afterDealerAction();
-        }
-    }
-
-    /**
-     * Called when the game should be terminated.
-     */
-    public void terminate() {
-        for (int i = players.length-1; i >= 0; i--){
-            players[i].terminate();
-            try {
-                players[i].getPlayerThread().join();
-            } catch (InterruptedException ignored) {}
-        }
-        terminate =  true;
-    }
-
-    /**
-     * Check if the game should be terminated or the game end conditions are met.
-     *
-     * @return true iff the game should be finished.
-     */
-    private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
-    }
-
-    /**
-     * Checks cards should be removed from the table and removes them.
-     */
-    private void removeCardsFromTable() {
-        while(!sets.isEmpty()){
-            Integer idOfPlayer = sets.poll();
-            if (idOfPlayer != null){
-                Player currPlayer = players[idOfPlayer];
-                if(table.getPlayerCounter(idOfPlayer) == 3){
-                    boolean isValidSet = env.util.testSet(table.getPlayerCards(idOfPlayer));
-                    if(isValidSet){
-                        slotsOfPlayer = table.getPlayerSlots(idOfPlayer);
-                        for(int slot : slotsOfPlayer){
-                            table.removeCard(slot);
-                            for(Player tempPlayer : players){
-                                tempPlayer.actions.remove(slot);
-                            }
-                        }
-                        currPlayer.setShouldRewarded(true);
-                        placeAll = false;
-                        placeCardsOnTable();
-                        updateTimerDisplay(isValidSet);
-                    }
-                    else{
-                        currPlayer.setShouldPenalty(true);
-                    }
-                }
-                currPlayer.actions.clear();
-                synchronized (currPlayer) {
-                    currPlayer.notifyAll();
-                }
-            }
-        }
-    }
-
-    /**
-     * Check if any cards can be removed from the deck and placed on the table.
-     */
-    private void placeCardsOnTable() {
-        Collections.shuffle(deck);
-        if(placeAll){
-            for(int i = 0; i < env.config.tableSize && deck.size() > 0; i++){
-                table.placeCard(deck.remove(0), i);
-            }
-        }
-        else{
-            if(slotsOfPlayer != null){
-                for(int i = 0; i < env.config.featureSize && deck.size() > 0; i++){
-                    table.placeCard(deck.remove(0), slotsOfPlayer[i]);
-                }
-                slotsOfPlayer = null;
-            }
-        }
-    }
-
-    /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
-     */
-    public void sleepUntilWokenOrTimeout() {
-        if(sets.size() == 0){
-            synchronized (lock){
-                try {
-                    lock.wait(1);
-                } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-            }
-        }
-    }
-
-    /**
-     * Reset and/or update the countdown and the countdown display.
-     */
-    private void updateTimerDisplay(boolean reset){
-        long countDown = reshuffleTime - System.currentTimeMillis();
-        if(reset){
-            env.ui.setCountdown(env.config.turnTimeoutMillis, false);
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 99; 
-        }
-        else{
-            if(countDown >= env.config.turnTimeoutWarningMillis)
-                env.ui.setCountdown(countDown , false);
-            else
-                env.ui.setCountdown(countDown , true);
-        }
-    }
-
-    /**
-     * Returns all the cards from the table to the deck.
-     */
-    private void removeAllCardsFromTable() {
-        for(int i = 0; i < env.config.tableSize; i++){
-            int card = table.cardInSlot(i);
-            if(card != -1){
-                deck.add(card);
-                table.removeCard(i);
-            }
-        }
-        sets.clear();
-        for(Player player : players){
-            player.actions.clear();
-            synchronized (player) {
-                player.notifyAll();
-            }
-            player.setShouldPenalty(false);
-            player.setShouldRewarded(false);
-            player.getPlayerThread().interrupt();
-        }
-    }
-
-    /**
-     * Check who is/are the winner/s and displays them.
-     */
-    private void announceWinners(){
-        // If there are no players, there's nothing to do.
-        if (players == null || players.length == 0){
-            env.logger.info("No players in the game.");
-            return;
-        }
-
-        // Initialize maxScore to the minimum possible value.
-        int maxScore = -1;
-
-        // Use a list to collect the IDs of the winner(s) as there might be a tie.
-        List<Integer> winnerIds = new ArrayList<>();
-
-        // Iterate over all players to find the maximum score and collect winner IDs.
-        for (Player player : players){
-            int playerScore = player.score();
-            // Update maxScore and reset winnerIds list if a new maxScore is found.
-            if (playerScore > maxScore){
-                maxScore = playerScore;
-                winnerIds.clear();
-                winnerIds.add(player.id);
-            }
-            else if (playerScore == maxScore){
-                // If the current player has a score equal to maxScore, add their ID to the winnerIds list.
-                winnerIds.add(player.id);
-            }
-        }
-
-        // Convert the list of winner IDs to an array and pass it to the announceWinner method.
-        int[] winnersArray = new int[winnerIds.size()];
-        for (int i = 0; i < winnerIds.size(); i++){
-            winnersArray[i] = winnerIds.get(i); // Unbox Integer to int
-        }
-        env.ui.announceWinner(winnersArray);
-    }
-
-    public Thread getDealerThread() {
-        return dealerThread;
-    }
-
-    public Object getLock(){
-        return lock;
-    }
-
-    public void addToDeck(int card){
-        deck.add(card);
-    }
+package bguspl.set.ex;
+import bguspl.set.Env;
+import bguspl.set.GameJournal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * This class manages the dealer's threads and data
+ */
+public class Dealer implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Player[] players;
+
+    /**
+     * The card ids that are left in the dealer's deck, and the random number generator it draws them with (seeded by
+     * the configuration, so a game can be replayed).
+     */
+    private final Deck deck;
+    private final Random random;
+
+    /**
+     * The legal sets among the cards that are still in the game (i.e. in the deck or on the table).
+     * Cards only leave the game when they are collected as a set, so drawing and returning cards leave it unchanged.
+     * The sets are counted only when they are made of at most 3 cards (null otherwise): removing a card from the count
+     * completes every combination of setSize - 2 cards in the game, which grows too fast with larger sets.
+     */
+    private final SetIndex remainingSets;
+
+    /**
+     * Without remainingSets: true iff the cards still in the game form a legal set, and true iff sets were collected
+     * since it was checked (it is checked again with a search that stops at the first set).
+     */
+    private boolean setsRemain = true;
+    private boolean setsRemainStale;
+
+    /**
+     * True iff game should be terminated.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * The time when the dealer needs to reshuffle the deck due to turn timeout.
+     */
+    private long reshuffleTime = Long.MAX_VALUE;
+
+    /**
+     * The time of the last deal or collected set (for the elapsed time display, when there is no turn timeout).
+     */
+    private long lastActionTime;
+
+    /**
+     * The resolution of the countdown display, normally and during the warning period.
+     */
+    private static final long COUNTDOWN_TICK_MILLIS = 1000;
+    private static final long WARNING_TICK_MILLIS = 10;
+
+    /**
+     * The maximal number of candidate sets completed when dealing a set (see dealSet).
+     */
+    private static final int DEAL_SET_CANDIDATES = 1024;
+
+    /**
+     * The order in which claims are resolved (the order they were submitted in).
+     */
+    private static final Comparator<Claim> BY_TIME = Comparator.comparingLong(claim -> claim.time);
+
+    /**
+     * The claims submitted by the players, in the order they were submitted.
+     */
+    final BlockingQueue<Claim> sets;
+
+    private final ReentrantLock lock;
+    private final Condition woken;
+    private Thread dealerThread;
+    private Thread[] playersOfThreads;
+    boolean placeAll;
+    int[] slotsOfPlayer;
+
+    /**
+     * Buffers for resolving a batch of claims (see removeCardsFromTable).
+     */
+    private final List<Claim> claims;
+    private final List<Player> winners;
+    private final boolean[] collected;
+    private final int[] collectedSlots;
+
+    /**
+     * The number of sets collected, and the number of times the table was cleared and dealt again.
+     */
+    private int setsCollected;
+    private int reshuffles;
+
+    /**
+     * A key press posted to the event loop: the player and slot, encoded as player * tableSize + slot, and the time
+     * it was posted (System::nanoTime), which becomes the time of the claim it completes.
+     */
+    private static final class KeyPress {
+
+        final int event;
+        final long time;
+
+        KeyPress(int event, long time) {
+            this.event = event;
+            this.time = time;
+        }
+    }
+
+    /**
+     * The key presses of the players (event loop engine only, see eventLoop).
+     */
+    private final BlockingQueue<KeyPress> keyPresses;
+
+    /**
+     * An event that only wakes the event loop up.
+     */
+    private static final KeyPress WAKE_UP = new KeyPress(-1, 0);
+
+    /**
+     * The time when each player's freeze ends (0 if the player is not frozen; event loop engine only).
+     */
+    private final long[] frozenUntil;
+
+    /**
+     * The record the game is recorded to, and the record it is replayed from (null if none; event loop engine only).
+     */
+    private GameRecord record;
+    private GameRecord replay;
+
+    /**
+     * The number of events of the replay applied so far.
+     */
+    private int replayed;
+
+    /**
+     * True iff the table was changed since the last dealing delay.
+     */
+    private boolean dealt;
+
+    public Dealer(Env env, Table table, Player[] players) {
+        this.env = env;
+        this.table = table;
+        this.players = players;
+        random = new Random(env.config.randomSeed);
+        deck = new Deck(env.config.deckSize, random);
+        if(env.config.featureSize <= 3){
+            remainingSets = new SetIndex(env.util, env.config.featureSize, env.config.deckSize, env.config.deckSize, false);
+            remainingSets.fillWithDeck(env.config.featureCount);
+        }
+        else{
+            remainingSets = null;
+        }
+        this.sets = new ArrayBlockingQueue<Claim>(env.config.players, true);
+        lock = new ReentrantLock();
+        woken = lock.newCondition();
+        dealerThread = Thread.currentThread();
+        playersOfThreads = new Thread[players.length];
+        placeAll = true;
+        slotsOfPlayer = null;
+        claims = new ArrayList<>(env.config.players);
+        winners = new ArrayList<>(env.config.players);
+        collected = new boolean[env.config.tableSize];
+        collectedSlots = new int[env.config.players * env.config.featureSize];
+        keyPresses = new ArrayBlockingQueue<KeyPress>(Math.max(env.config.players * env.config.tableSize, 1));
+        env.metrics.watchQueues(sets::size, keyPresses::size);
+        frozenUntil = new long[env.config.players];
+    }
+
+    /**
+     * The dealer thread starts here (main loop for the dealer thread).
+     */
+    @Override
+    public void run() {
+        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+
+        if(env.config.eventLoop){
+            // a replayed game takes no key presses from the players
+            for(int i = 0; i < players.length && replay == null; i++){
+                players[i].startInEventLoop();
+            }
+        }
+        else for(int i = 0; i < playersOfThreads.length; i++){
+            playersOfThreads[i] = env.threadFactory.newThread(players[i]);
+            playersOfThreads[i].start();
+        }
+
+        while (!shouldFinish()){
+            placeAll = true;
+            beforeTableAction();
+            placeCardsOnTable();
+            afterTableAction();
+            dealingDelay();
+            placeAll = false;
+            updateTimerDisplay(true);
+            table.setTableAvaliable(true);
+            if(env.config.eventLoop)
+                eventLoop();
+            else
+                timerLoop();
+            updateTimerDisplay(true);
+            table.setTableAvaliable(false);
+            beforeTableAction();
+            removeAllCardsFromTable();
+            afterTableAction();
+            dealingDelay();
+            if(!shouldFinish()){
+                reshuffles++;
+                env.journal.write(GameJournal.RESHUFFLE, -1, -1, -1, reshuffles);
+            }
+        }
+
+        if(terminate == false){
+            terminate();
+        }
+        if(record != null){
+            int[] scores = new int[players.length];
+            for(int i = 0; i < players.length; i++)
+                scores[i] = players[i].score();
+            List<Integer> remaining = new ArrayList<>(deck.size());
+            deck.addTo(remaining);
+            record.finish(scores, remaining.stream().mapToInt(Integer::intValue).toArray());
+        }
+        announceWinners();
+        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * The inner loop of the dealer thread that runs as long as the countdown did not time out.
+     * The loop also ends as soon as there are no sets on the table, or no sets left in the game.
+     */
+    private void timerLoop() {
+        while (!terminate && System.currentTimeMillis() < reshuffleTime && table.countSets() > 0 && !shouldFinish()) {
+            sleepUntilWokenOrTimeout();
+            env.metrics.dealerIteration();
+            updateTimerDisplay(false);
+            if(!sets.isEmpty()){
+                table.setTableAvaliable(false);
+                table.beforeDealerAction();
+                removeCardsFromTable();
+                table.afterDealerAction();
+                dealingDelay();
+                table.setTableAvaliable(true);
+            }
+        }
+    }
+
+    /**
+     * The inner loop of the event loop engine, in which the dealer thread owns the table: the players only post their
+     * key presses (see postKeyPress), and the dealer applies them in order, with no locks.
+     * The loop runs as long as the countdown did not time out, and as timerLoop ends when there are no sets left.
+     */
+    private void eventLoop() {
+        if(replay != null){
+            replayLoop();
+            return;
+        }
+        while (!terminate && System.currentTimeMillis() < reshuffleTime && table.countSets() > 0 && !shouldFinish()) {
+            long now = System.currentTimeMillis();
+            long deadline = Math.min(Math.min(nextTickTime(), nextFreezeTime()), reshuffleTime);
+            try {
+                KeyPress event = keyPresses.poll(deadline - now, TimeUnit.MILLISECONDS);
+                // the key presses after the one that ended the turn are dropped, as the threaded engine does; the
+                // drain stops at the deadline, as the computer players (blocked on a full queue) never let it empty
+                for(; event != null && table.countSets() > 0 && !shouldFinish();
+                    event = System.currentTimeMillis() < deadline ? keyPresses.poll() : null){
+                    if(event != WAKE_UP)
+                        applyKeyPress(event.event / env.config.tableSize, event.event % env.config.tableSize, event.time);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            dealingDelay();
+            updateTimerDisplay(false);
+            updateFreezeDisplay();
+            env.metrics.dealerIteration();
+        }
+        if(!terminate && table.countSets() > 0 && !shouldFinish() && record != null)
+            record.add(GameRecord.TIMEOUT);
+    }
+
+    /**
+     * The inner loop of the event loop engine when replaying a game: applies the recorded events as fast as possible,
+     * with no freezes and no countdown, until a recorded timeout ends the turn. The game ends with the record.
+     */
+    private void replayLoop() {
+        while (!terminate && table.countSets() > 0 && !shouldFinish()) {
+            if(replayed == replay.size()){
+                terminate = true;
+                break;
+            }
+            int event = replay.event(replayed++);
+            if(event == GameRecord.TIMEOUT){
+                if(record != null)
+                    record.add(GameRecord.TIMEOUT);
+                break;
+            }
+            applyKeyPress(event / env.config.tableSize, event % env.config.tableSize, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records the game to the given record (event loop engine only).
+     */
+    public void recordTo(GameRecord record) {
+        this.record = record;
+    }
+
+    /**
+     * Replays the game in the given record instead of taking the players' key presses (event loop engine only).
+     * The dealer should have been created with the seed of the record.
+     */
+    public void replayFrom(GameRecord replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * Applies a key press of a player (event loop engine only): the same token moves as Player::run, except that a
+     * completed set is checked right away.
+     *
+     * @param time - the time the key press was posted (System::nanoTime), the time of the claim if it completes a set.
+     */
+    private void applyKeyPress(int player, int slot, long time) {
+        if(frozenUntil[player] != 0 && replay == null)
+            return;
+        if(record != null)
+            record.add(player * env.config.tableSize + slot);
+        if(table.removeToken(player, slot) || table.getPlayerCounter(player) == env.config.featureSize)
+            return;
+        table.placeToken(player, slot);
+        if(table.getPlayerCounter(player) == env.config.featureSize){
+            sets.add(new Claim(player, table.getVersion(), time, table.getPlayerSlots(player), table.getPlayerCards(player)));
+            removeCardsFromTable();
+        }
+    }
+
+    /**
+     * Posts a key press of a player to the event loop engine.
+     *
+     * @param player - the id of the player.
+     * @param slot   - the slot corresponding to the key pressed.
+     * @param wait   - true iff the caller should wait for room in the queue (otherwise, the key press is dropped).
+     */
+    public void postKeyPress(int player, int slot, boolean wait) throws InterruptedException {
+        KeyPress press = new KeyPress(player * env.config.tableSize + slot, System.nanoTime());
+        if(!wait){
+            if(!keyPresses.offer(press))
+                env.metrics.keyPressDropped();
+        }
+        else if(!env.metrics.enabled)
+            keyPresses.put(press);
+        else if(!keyPresses.offer(press)){
+            keyPresses.put(press);
+            env.metrics.keyPressBlocked(System.nanoTime() - press.time);
+        }
+    }
+
+    /**
+     * Awards a point to a player that collected a set, or penalizes one whose set was not legal.
+     */
+    private void answer(Player player, boolean point) {
+        env.metrics.claimResolved(point ? 1 : 0);
+        env.journal.write(GameJournal.VERDICT, player.id, -1, -1, point ? 1 : 0);
+        if(!env.config.eventLoop){
+            if(point)
+                player.setShouldRewarded(true);
+            else
+                player.setShouldPenalty(true);
+            return;
+        }
+        if(point)
+            player.addPoint();
+        long freezeMillis = point ? env.config.pointFreezeMillis : env.config.penaltyFreezeMillis;
+        if(freezeMillis > 0){
+            frozenUntil[player.id] = System.currentTimeMillis() + freezeMillis;
+            env.ui.setFreeze(player.id, freezeMillis);
+            env.metrics.freeze(player.id, freezeMillis);
+        }
+    }
+
+    /**
+     * @return - the time when the freeze display of some player should next change (event loop engine only).
+     */
+    private long nextFreezeTime() {
+        long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+        for(long until : frozenUntil){
+            if(until != 0){
+                long remaining = until - now;
+                next = Math.min(next, now + Math.max(Math.min(remaining, (remaining - 1) % COUNTDOWN_TICK_MILLIS + 1), 0));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Updates the freeze display of the frozen players, and releases the players whose freeze ended.
+     */
+    private void updateFreezeDisplay() {
+        long now = System.currentTimeMillis();
+        for(int player = 0; player < frozenUntil.length; player++){
+            if(frozenUntil[player] == 0)
+                continue;
+            long remaining = frozenUntil[player] - now;
+            if(remaining <= 0){
+                frozenUntil[player] = 0;
+                env.ui.setFreeze(player, 0);
+            }
+            else{
+                env.ui.setFreeze(player, (remaining + COUNTDOWN_TICK_MILLIS - 1) / COUNTDOWN_TICK_MILLIS * COUNTDOWN_TICK_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Takes the table from the players (not needed by the event loop engine, in which only the dealer uses it).
+     */
+    private void beforeTableAction() {
+        if(!env.config.eventLoop)
+            table.beforeDealerAction();
+    }
+
+    private void afterTableAction() {
+        if(!env.config.eventLoop)
+            table.afterDealerAction();
+    }
+
+    /**
+     * Called when the game should be terminated.
+     */
+    public void terminate() {
+        for (int i = players.length-1; i >= 0; i--){
+            players[i].terminate();
+            try {
+                players[i].join();
+            } catch (InterruptedException ignored) {}
+        }
+        terminate =  true;
+        wakeUp();
+        keyPresses.offer(WAKE_UP);
+    }
+
+    /**
+     * Check if the game should be terminated or the game end conditions are met.
+     *
+     * @return true iff the game should be finished.
+     */
+    private boolean shouldFinish() {
+        return terminate || !setsRemain();
+    }
+
+    /**
+     * @return - true iff the cards still in the game (in the deck or on the table, except the slots just collected)
+     * form a legal set.
+     * @pre - no cards were drawn from the deck that are not yet on the table.
+     */
+    private boolean setsRemain() {
+        if(remainingSets != null)
+            return remainingSets.count() > 0;
+        if(setsRemainStale){
+            List<Integer> cards = new ArrayList<>(deck.size() + env.config.tableSize);
+            deck.addTo(cards);
+            for(int slot = 0; slot < env.config.tableSize; slot++){
+                if(!collected[slot] && table.cardInSlot(slot) != -1)
+                    cards.add(table.cardInSlot(slot));
+            }
+            setsRemain = !env.util.findSets(cards, 1).isEmpty();
+            setsRemainStale = false;
+        }
+        return setsRemain;
+    }
+
+    /**
+     * Checks cards should be removed from the table and removes them.
+     * All the pending claims are resolved in one pass, in the order they were submitted: a claim that lost a card to an
+     * earlier claim of the batch (or whose cards were replaced since it was submitted) is stale, and is rejected
+     * without checking it. The slots of all the legal sets are then refilled in a single deal (the other players are
+     * released right away, the winners only after the deal).
+     */
+    private void removeCardsFromTable() {
+        sets.drainTo(claims);
+        if(claims.isEmpty())
+            return;
+        claims.sort(BY_TIME);
+
+        long version = table.getVersion();
+        int collectedCount = 0;
+        for(Claim claim : claims){
+            Player currPlayer = players[claim.player];
+            currPlayer.actions.clear();
+            if(env.metrics.enabled)
+                env.metrics.verdictLatency(System.nanoTime() - claim.time);
+            for(int i = 0; i < claim.cards.length; i++){
+                env.journal.write(GameJournal.CLAIM, claim.player, claim.slots[i], claim.cards[i], claim.version);
+            }
+            if(isCurrent(claim, version, collected)){
+                if(env.util.testSet(claim.cards)){
+                    for(int i = 0; i < claim.slots.length; i++){
+                        int slot = claim.slots[i];
+                        collected[slot] = true;
+                        collectedSlots[collectedCount++] = slot;
+                        if(remainingSets != null)
+                            remainingSets.remove(claim.cards[i]);
+                        else
+                            setsRemainStale = true;
+                        for(Player tempPlayer : players){
+                            tempPlayer.actions.remove(slot);
+                        }
+                    }
+                    answer(currPlayer, true);
+                    winners.add(currPlayer);
+                    setsCollected++;
+                    continue;
+                }
+                answer(currPlayer, false);
+            }
+            else{
+                env.journal.write(GameJournal.VERDICT, claim.player, -1, -1, -1);
+                env.metrics.claimResolved(-1);
+            }
+            currPlayer.notifyAnswer();
+        }
+
+        if(collectedCount > 0){
+            slotsOfPlayer = Arrays.copyOf(collectedSlots, collectedCount);
+            placeAll = false;
+            placeCardsOnTable();
+            updateTimerDisplay(true);
+        }
+        for(Player winner : winners){
+            winner.notifyAnswer();
+        }
+        for(int i = 0; i < collectedCount; i++){
+            collected[collectedSlots[i]] = false;
+        }
+        claims.clear();
+        winners.clear();
+    }
+
+    /**
+     * Check if the cards of a claim are still on the table, in the same slots.
+     *
+     * @param claim     - the claim.
+     * @param version   - the version of the table when the batch of claims started.
+     * @param collected - the slots collected earlier in the batch.
+     * @return true iff no card of the claim was collected or replaced since the claim was submitted.
+     */
+    private boolean isCurrent(Claim claim, long version, boolean[] collected) {
+        for(int i = 0; i < claim.slots.length; i++){
+            int slot = claim.slots[i];
+            if(collected[slot])
+                return false;
+            if(claim.version != version && table.cardInSlot(slot) != claim.cards[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check if any cards can be removed from the deck and placed on the table.
+     * All the slots to fill (the empty slots, or the slots of a collected set) are replaced in a single table change.
+     */
+    private void placeCardsOnTable() {
+        long version = table.getVersion();
+        int[] slots = null;
+        if(placeAll){
+            slots = IntStream.range(0, env.config.tableSize).filter(slot -> table.cardInSlot(slot) == -1).toArray();
+        }
+        else if(slotsOfPlayer != null){
+            slots = slotsOfPlayer;
+            slotsOfPlayer = null;
+        }
+        if(slots != null && slots.length > 0){
+            boolean dealSet = env.config.dealSets && setsRemain();
+            int[] cards = new int[slots.length];
+            for(int i = 0; i < slots.length; i++){
+                cards[i] = deck.isEmpty() ? -1 : deck.draw();
+            }
+            List<Integer> kept = keptCards(slots);
+            if(dealSet && !hasSet(kept, cards)){
+                dealSet(kept, cards);
+            }
+            table.replaceCards(slots, cards);
+            dealt = true;
+        }
+        if(env.config.hints && table.getVersion() != version && env.logger.isLoggable(Level.INFO)){
+            for(Hint hint : table.getHints()){
+                env.logger.info("hint: " + hint);
+            }
+        }
+    }
+
+    /**
+     * Sleep until a player submits a set, the countdown display should change, or the game is terminated.
+     */
+    public void sleepUntilWokenOrTimeout() {
+        lock.lock();
+        try {
+            long wakeTime = nextTickTime();
+            long now = System.currentTimeMillis();
+            while(!terminate && sets.isEmpty() && now < wakeTime){
+                woken.await(wakeTime - now, TimeUnit.MILLISECONDS);
+                now = System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes the dealer up (called when a player submits a set).
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            woken.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return - the time when the countdown (or elapsed time) display should next change (at the latest, the
+     * reshuffle time, and never if there is no display).
+     */
+    private long nextTickTime() {
+        long now = System.currentTimeMillis();
+        if(env.config.turnTimeoutMillis < 0)
+            return Long.MAX_VALUE;
+        if(env.config.turnTimeoutMillis == 0)
+            return now + COUNTDOWN_TICK_MILLIS - (now - lastActionTime) % COUNTDOWN_TICK_MILLIS;
+        long countDown = reshuffleTime - now;
+        if(countDown <= 0)
+            return now;
+        if(countDown >= env.config.turnTimeoutWarningMillis){
+            long untilTick = countDown % COUNTDOWN_TICK_MILLIS;
+            long untilWarning = countDown - env.config.turnTimeoutWarningMillis;
+            return now + Math.min(untilTick == 0 ? COUNTDOWN_TICK_MILLIS : untilTick, Math.max(untilWarning, 1));
+        }
+        long untilTick = countDown % WARNING_TICK_MILLIS;
+        return now + (untilTick == 0 ? WARNING_TICK_MILLIS : untilTick);
+    }
+
+    /**
+     * @param slots - the slots about to be filled.
+     * @return - the cards on the table that stay on it.
+     */
+    private List<Integer> keptCards(int[] slots) {
+        List<Integer> kept = new ArrayList<>(env.config.tableSize);
+        for(int slot = 0; slot < env.config.tableSize; slot++){
+            int card = table.cardInSlot(slot);
+            if(card != -1)
+                kept.add(card);
+        }
+        for(int slot : slots){
+            kept.remove(Integer.valueOf(table.cardInSlot(slot)));
+        }
+        return kept;
+    }
+
+    /**
+     * @param kept  - the cards that stay on the table.
+     * @param cards - the cards about to be placed (-1 for none).
+     * @return - true iff the table will have a legal set.
+     */
+    private boolean hasSet(List<Integer> kept, int[] cards) {
+        List<Integer> table = new ArrayList<>(kept);
+        for(int card : cards){
+            if(card != -1)
+                table.add(card);
+        }
+        return env.util.countSets(table, 1) > 0;
+    }
+
+    /**
+     * Replaces the cards about to be placed so the table will have a legal set, if one is found among at most
+     * DEAL_SET_CANDIDATES candidates (the other slots are filled at random).
+     * A candidate is featureSize - 1 cards completed to a set (see Util::completeSet), which is dealt if the completing
+     * card is in the deck and the candidate's deck cards fit in the slots. The candidates are first all the kept cards
+     * completed by a single deck card, then random mixes of kept and deck cards. If no set is found the table is
+     * dealt at random, and it is reshuffled when the turn ends as before.
+     *
+     * @param kept  - the cards that stay on the table.
+     * @param cards - the cards about to be placed (-1 for none), replaced in place.
+     */
+    private void dealSet(List<Integer> kept, int[] cards) {
+        for(int card : cards){
+            if(card != -1)
+                deck.add(card);
+        }
+        int length = env.config.featureSize - 1;
+        int[] candidate = new int[length];
+        int[] chosen = new int[length + 1];
+        int chosenCount = 0;
+        int candidates = 0;
+
+        // kept cards completed by a deck card: every combination of length kept cards, in order
+        int[] indices = IntStream.range(0, length).toArray();
+        boolean more = length > 0 && kept.size() >= length;
+        while(more && chosenCount == 0 && candidates < DEAL_SET_CANDIDATES){
+            candidates++;
+            for(int i = 0; i < length; i++){
+                candidate[i] = kept.get(indices[i]);
+            }
+            int completion = env.util.completeSet(candidate, length);
+            if(completion != -1 && deck.contains(completion)){
+                chosen[chosenCount++] = completion;
+            }
+            int i = length - 1;
+            while(i >= 0 && indices[i] == kept.size() - length + i){
+                i--;
+            }
+            more = i >= 0;
+            if(more){
+                indices[i]++;
+                for(int j = i + 1; j < length; j++){
+                    indices[j] = indices[j - 1] + 1;
+                }
+            }
+        }
+
+        // random mixes of fromDeck deck cards and length - fromDeck kept cards, completed by another deck card
+        int minFromDeck = Math.max(1, length - kept.size());
+        int maxFromDeck = Math.min(cards.length - 1, Math.min(length, deck.size() - 1));
+        while(chosenCount == 0 && minFromDeck <= maxFromDeck && candidates < DEAL_SET_CANDIDATES){
+            candidates++;
+            int fromDeck = minFromDeck + random.nextInt(maxFromDeck - minFromDeck + 1);
+            for(int i = 0; i < length; i++){
+                do{
+                    candidate[i] = i < fromDeck ? deck.peek() : kept.get(random.nextInt(kept.size()));
+                } while(indexOf(candidate, i, candidate[i]) != -1);
+            }
+            int completion = env.util.completeSet(candidate, length);
+            if(completion != -1 && deck.contains(completion) && indexOf(candidate, fromDeck, completion) == -1){
+                System.arraycopy(candidate, 0, chosen, 0, fromDeck);
+                chosen[fromDeck] = completion;
+                chosenCount = fromDeck + 1;
+            }
+        }
+
+        for(int i = 0; i < chosenCount; i++){
+            deck.remove(chosen[i]);
+            cards[i] = chosen[i];
+        }
+        for(int i = chosenCount; i < cards.length; i++){
+            cards[i] = deck.isEmpty() ? -1 : deck.draw();
+        }
+    }
+
+    /**
+     * @return - the index of the card among the first length cards of the array, -1 if it is not there.
+     */
+    private static int indexOf(int[] cards, int length, int card) {
+        for(int i = 0; i < length; i++){
+            if(cards[i] == card)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Pause for the dealing delay if the table was changed, so the players can see the new cards.
+     * Called after the dealer leaves the table, so the players are not blocked in the meantime.
+     */
+    private void dealingDelay() {
+        if(!dealt || replay != null)
+            return;
+        dealt = false;
+        try {
+            Thread.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {}
+    }
+
+    /**
+     * Reset and/or update the countdown and the countdown display.
+     */
+    private void updateTimerDisplay(boolean reset){
+        if(env.config.turnTimeoutMillis <= 0){
+            if(reset)
+                lastActionTime = System.currentTimeMillis();
+            if(env.config.turnTimeoutMillis == 0)
+                env.ui.setElapsed(System.currentTimeMillis() - lastActionTime);
+            return;
+        }
+        long countDown = reshuffleTime - System.currentTimeMillis();
+        if(reset){
+            env.ui.setCountdown(env.config.turnTimeoutMillis, false);
+            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 99; 
+        }
+        else{
+            if(countDown >= env.config.turnTimeoutWarningMillis)
+                env.ui.setCountdown(countDown , false);
+            else
+                env.ui.setCountdown(countDown , true);
+        }
+    }
+
+    /**
+     * Returns all the cards from the table to the deck.
+     */
+    private void removeAllCardsFromTable() {
+        int[] slots = IntStream.range(0, env.config.tableSize).filter(slot -> table.cardInSlot(slot) != -1).toArray();
+        for(int slot : slots){
+            deck.add(table.cardInSlot(slot));
+        }
+        int[] empty = new int[slots.length];
+        Arrays.fill(empty, -1);
+        table.replaceCards(slots, empty);
+        dealt = true;
+        sets.clear();
+        keyPresses.clear();
+        for(Player player : players){
+            player.actions.clear();
+            player.notifyAnswer();
+            player.setShouldPenalty(false);
+            if(player.getPlayerThread() != null){
+                player.getPlayerThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Check who is/are the winner/s and displays them.
+     */
+    private void announceWinners(){
+        // If there are no players, there's nothing to do.
+        if (players == null || players.length == 0){
+            env.logger.info("No players in the game.");
+            return;
+        }
+
+        // Initialize maxScore to the minimum possible value.
+        int maxScore = -1;
+
+        // Use a list to collect the IDs of the winner(s) as there might be a tie.
+        List<Integer> winnerIds = new ArrayList<>();
+
+        // Iterate over all players to find the maximum score and collect winner IDs.
+        for (Player player : players){
+            int playerScore = player.score();
+            // Update maxScore and reset winnerIds list if a new maxScore is found.
+            if (playerScore > maxScore){
+                maxScore = playerScore;
+                winnerIds.clear();
+                winnerIds.add(player.id);
+            }
+            else if (playerScore == maxScore){
+                // If the current player has a score equal to maxScore, add their ID to the winnerIds list.
+                winnerIds.add(player.id);
+            }
+        }
+
+        // Convert the list of winner IDs to an array and pass it to the announceWinner method.
+        int[] winnersArray = new int[winnerIds.size()];
+        for (int i = 0; i < winnerIds.size(); i++){
+            winnersArray[i] = winnerIds.get(i); // Unbox Integer to int
+        }
+        env.ui.announceWinner(winnersArray);
+    }
+
+    public Thread getDealerThread() {
+        return dealerThread;
+    }
+
+    public int getSetsCollected(){
+        return setsCollected;
+    }
+
+    public int getReshuffles(){
+        return reshuffles;
+    }
+
+    public void addToDeck(int card){
+        deck.add(card);
+    }
 }
\ No newline at end of file
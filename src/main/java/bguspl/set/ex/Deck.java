@@ -0,0 +1,125 @@
+package bguspl.set.ex;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The cards left in the dealer's deck.
+ * The deck is not kept in any order: every draw takes a random card (a single step of a Fisher-Yates shuffle), so
+ * only the cards actually drawn are shuffled, and drawing and returning a card both take constant time.
+ *
+ * @inv 0 <= size <= cards.length
+ * @inv indexOf[cards[i]] == i for every 0 <= i < size
+ */
+class Deck {
+
+    /**
+     * The cards in the deck (only the first size entries are used).
+     */
+    private final int[] cards;
+    private int size;
+
+    /**
+     * Mapping between a card and its index in cards (-1 if it is not in the deck).
+     */
+    private final int[] indexOf;
+
+    /**
+     * The random number generator used to draw cards.
+     */
+    private final Random random;
+
+    /**
+     * Creates a full deck.
+     *
+     * @param deckSize - the total number of cards in the deck.
+     * @param random   - the random number generator used to draw cards.
+     */
+    Deck(int deckSize, Random random) {
+        this.random = random;
+        cards = new int[deckSize];
+        indexOf = new int[deckSize];
+        for (int card = 0; card < deckSize; ++card) {
+            cards[card] = card;
+            indexOf[card] = card;
+        }
+        size = deckSize;
+    }
+
+    /**
+     * @return - the number of cards in the deck.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return - true iff there are no cards in the deck.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes a random card from the deck.
+     *
+     * @return - the card drawn.
+     * @pre - the deck is not empty.
+     */
+    int draw() {
+        int card = cards[random.nextInt(size)];
+        remove(card);
+        return card;
+    }
+
+    /**
+     * @return - a random card of the deck, which stays in it.
+     * @pre - the deck is not empty.
+     */
+    int peek() {
+        return cards[random.nextInt(size)];
+    }
+
+    /**
+     * @param card - a card id.
+     * @return - true iff the card is in the deck.
+     */
+    boolean contains(int card) {
+        return indexOf[card] != -1;
+    }
+
+    /**
+     * Removes a specific card from the deck.
+     *
+     * @param card - the card id.
+     * @pre - the card is in the deck.
+     */
+    void remove(int card) {
+        int index = indexOf[card];
+        int last = cards[--size];
+        cards[index] = last;
+        indexOf[last] = index;
+        indexOf[card] = -1;
+    }
+
+    /**
+     * Adds all the cards in the deck to a list.
+     *
+     * @param list - the list to add the cards to.
+     */
+    void addTo(List<Integer> list) {
+        for (int i = 0; i < size; ++i)
+            list.add(cards[i]);
+    }
+
+    /**
+     * Returns a card to the deck.
+     *
+     * @param card - the card id.
+     * @pre - the card is not in the deck.
+     */
+    void add(int card) {
+        indexOf[card] = size;
+        cards[size++] = card;
+    }
+}
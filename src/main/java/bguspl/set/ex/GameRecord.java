@@ -0,0 +1,182 @@
+package bguspl.set.ex;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A record of a game run by the event loop engine, from which the game can be replayed exactly (see Dealer::replayFrom).
+ * With the seed of the dealer's random number generator fixed, the only input of the event loop is the ordered stream
+ * of key presses it applies (a set is claimed by the key press completing it) and the turns that ended by a timeout,
+ * so these are all that is recorded. The record also keeps the results of the game (the final scores and the cards
+ * left when it ended) so a replay can be checked against them.
+ * Events are written as variable length integers (one byte each while players * tableSize is below 128).
+ */
+public class GameRecord {
+
+    /**
+     * The event recorded when a turn ended because the countdown timed out.
+     */
+    public static final int TIMEOUT = -1;
+
+    private static final int MAGIC = 0x53455452; // "SETR"
+    private static final int VERSION = 1;
+
+    /**
+     * The seed of the dealer's random number generator, and the shape of the game.
+     */
+    public final long seed;
+    public final int players;
+    public final int tableSize;
+
+    /**
+     * The events, each either player * tableSize + slot for a key press, or TIMEOUT.
+     */
+    private int[] events = new int[1024];
+    private int size;
+
+    /**
+     * The results of the game (null until it ends).
+     */
+    private int[] scores;
+    private int[] remainingCards;
+
+    public GameRecord(long seed, int players, int tableSize) {
+        this.seed = seed;
+        this.players = players;
+        this.tableSize = tableSize;
+    }
+
+    /**
+     * Adds an event to the end of the record.
+     */
+    void add(int event) {
+        if (size == events.length)
+            events = Arrays.copyOf(events, size * 2);
+        events[size++] = event;
+    }
+
+    /**
+     * @return - the number of events in the record.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return - the event at the given index.
+     */
+    int event(int index) {
+        return events[index];
+    }
+
+    /**
+     * Records the results of the game.
+     *
+     * @param scores         - the final score of each player.
+     * @param remainingCards - the cards left when the game ended (in any order).
+     */
+    void finish(int[] scores, int[] remainingCards) {
+        this.scores = scores.clone();
+        this.remainingCards = remainingCards.clone();
+        Arrays.sort(this.remainingCards);
+    }
+
+    /**
+     * @return - the final score of each player (null if the game did not end).
+     */
+    public int[] scores() {
+        return scores;
+    }
+
+    /**
+     * @return - the cards left when the game ended, in ascending order (null if the game did not end).
+     */
+    public int[] remainingCards() {
+        return remainingCards;
+    }
+
+    /**
+     * @param other - a record of a replay of this game.
+     * @return - true iff both games had the same events and the same results.
+     */
+    public boolean matches(GameRecord other) {
+        return seed == other.seed && players == other.players && tableSize == other.tableSize
+                && Arrays.equals(Arrays.copyOf(events, size), Arrays.copyOf(other.events, other.size))
+                && Arrays.equals(scores, other.scores) && Arrays.equals(remainingCards, other.remainingCards);
+    }
+
+    /**
+     * Writes the record to a stream (which is not closed).
+     */
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(seed);
+        out.writeInt(players);
+        out.writeInt(tableSize);
+        out.writeInt(size);
+        for (int i = 0; i < size; ++i)
+            writeVarInt(out, events[i] + 1);
+        writeInts(out, scores);
+        writeInts(out, remainingCards);
+        out.flush();
+    }
+
+    /**
+     * Reads a record from a stream (which is not closed).
+     *
+     * @throws IOException - if the stream does not hold a record.
+     */
+    public static GameRecord read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("not a game record (or an unsupported version)");
+        GameRecord record = new GameRecord(in.readLong(), in.readInt(), in.readInt());
+        int size = in.readInt();
+        record.events = new int[Math.max(size, 1)];
+        for (int i = 0; i < size; ++i)
+            record.events[i] = readVarInt(in) - 1;
+        record.size = size;
+        record.scores = readInts(in);
+        record.remainingCards = readInts(in);
+        return record;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        for (; (value & ~0x7f) != 0; value >>>= 7)
+            out.writeByte((value & 0x7f) | 0x80);
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new EOFException("malformed event");
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values == null ? -1 : values.length);
+        if (values != null)
+            for (int value : values)
+                writeVarInt(out, value);
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        int[] values = new int[length];
+        for (int i = 0; i < length; ++i)
+            values[i] = readVarInt(in);
+        return values;
+    }
+}
@@ -0,0 +1,52 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * A legal set that is currently on the table, as given to whoever asks for hints.
+ * The hints of a table are shared by all the callers (see HintCache), so a hint is immutable: its accessors return
+ * copies of its arrays.
+ */
+public class Hint {
+
+    /**
+     * The slots of the cards of the set, in ascending order.
+     */
+    private final int[] slots;
+
+    /**
+     * The cards of the set (cards[i] is in slots[i]).
+     */
+    private final int[] cards;
+
+    /**
+     * The features of the cards of the set (features[i] are the features of cards[i]).
+     */
+    private final int[][] features;
+
+    Hint(int[] slots, int[] cards, int[][] features) {
+        this.slots = slots;
+        this.cards = cards;
+        this.features = features;
+    }
+
+    public int[] slots() {
+        return slots.clone();
+    }
+
+    public int[] cards() {
+        return cards.clone();
+    }
+
+    public int[][] features() {
+        int[][] copy = new int[features.length][];
+        for (int i = 0; i < features.length; ++i)
+            copy[i] = features[i].clone();
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "slots: " + Arrays.toString(slots) + " features: " + Arrays.deepToString(features);
+    }
+}
@@ -0,0 +1,73 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The hints of a table, computed at most once per version of the table's contents.
+ * The hints are built from the sets the table already keeps track of, so computing them does not search the table.
+ * Any number of threads may ask for hints while the table does not change (e.g. players inside the table gate).
+ */
+class HintCache {
+
+    /**
+     * The hints of one version of the table.
+     */
+    private static final class Snapshot {
+
+        final long version;
+        final List<Hint> hints;
+
+        Snapshot(long version, List<Hint> hints) {
+            this.version = version;
+            this.hints = hints;
+        }
+    }
+
+    /**
+     * The utilities used to convert cards to features.
+     */
+    private final Util util;
+
+    /**
+     * The hints of the latest version computed (null if none).
+     */
+    private volatile Snapshot snapshot;
+
+    HintCache(Util util) {
+        this.util = util;
+    }
+
+    /**
+     * Returns the hints of a version of the table, computing them only if that version was not computed yet.
+     *
+     * @param version - the current version of the table.
+     * @param sets    - supplies the legal sets on the table, each one is a sorted array of slots.
+     * @param cardAt  - mapping between a slot and the card placed in it.
+     * @return - an unmodifiable list of the hints, in ascending order of their first slot.
+     * @pre - the table does not change during the call.
+     */
+    List<Hint> get(long version, Supplier<List<int[]>> sets, Integer[] cardAt) {
+        Snapshot current = snapshot;
+        if (current != null && current.version == version) return current.hints;
+
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && current.version == version) return current.hints;
+
+            List<Hint> hints = new ArrayList<>();
+            for (int[] set : sets.get()) {
+                int[] cards = new int[set.length];
+                for (int i = 0; i < set.length; ++i)
+                    cards[i] = cardAt[set[i]];
+                hints.add(new Hint(set.clone(), cards, util.cardsToFeatures(cards)));
+            }
+            snapshot = new Snapshot(version, Collections.unmodifiableList(hints));
+            return snapshot.hints;
+        }
+    }
+}
@@ -1,250 +1,350 @@
-package bguspl.set.ex;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
-import javax.swing.Action;
-import bguspl.set.Env; 
-
-/**
- * This class manages the players' threads and data
- *
- * @inv id >= 0
- * @inv score >= 0
- */
-public class Player implements Runnable {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * Game entities.
-     */
-    private final Table table;
-
-    /**
-     * The id of the player (starting from 0).
-     */
-    public final int id;
-
-    /**
-     * The thread representing the current player.
-     */
-    private Thread playerThread;
-
-    /**
-     * The thread of the AI (computer) player (an additional thread used to generate key presses).
-     */
-    private Thread aiThread;
-
-    /**
-     * True iff the player is human (not a computer player).
-     */
-    private final boolean human;
-
-    /**
-     * True iff game should be terminated.
-     */
-    private volatile boolean terminate;
-
-    /**
-     * The current score of the player.
-     */
-    private int score;
-
-    public BlockingQueue<Integer> actions;
-    private Dealer dealer;
-    private volatile boolean shouldPenalty;
-    private volatile boolean shouldRewarded;
-    private volatile AtomicBoolean waitForAnswerAboutSet;
-
-    /**
-     * The class constructor.
-     *
-     * @param env    - the environment object.
-     * @param dealer - the dealer object.
-     * @param table  - the table object.
-     * @param id     - the id of the player.
-     * @param human  - true iff the player is a human player (i.e. input is provided manually, via the keyboard).
-     */
-    public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
-        this.env = env;
-        this.dealer = dealer;
-        this.table = table;
-        this.id = id;
-        this.human = human;
-        this.terminate = false;
-        shouldPenalty = false;
-        shouldRewarded = false;
-        this.actions = new ArrayBlockingQueue<Integer>(env.config.featureSize, true);
-        waitForAnswerAboutSet = new AtomicBoolean(false);
-    }
-
-    /**
-     * The main player thread of each player starts here (main loop for the player thread).
-     */
-    @Override
-    public void run() {
-        playerThread = Thread.currentThread();
-        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-        if (!human) createArtificialIntelligence();
-
-        while (!terminate) {
-            Integer action = null;
-            try{
-                action = actions.take();
-            }
-            catch (InterruptedException e) {}
-
-            table.beforePlayerAction();
-            boolean putSet = false;
-            if (action != null){
-                if(!table.removeToken(id, action)){
-                    if(table.getPlayerCounter(id) != env.config.featureSize){
-                        table.placeToken(id, action);
-                        if(table.getPlayerCounter(id) == env.config.featureSize){ // the player has set
-                            waitForAnswerAboutSet.set(true);; // check
-                            actions.clear(); // remove all elements from the queue.
-                            try {
-                                synchronized (this) {//----------------------------------------------
-                                    dealer.sets.put(id); // Submit the set to the dealer
-                                    putSet = true;
-                                    table.afterPlayerAction();
-                                    Thread dealerThread = dealer.getDealerThread(); // Get the dealer's thread
-                                    if (dealerThread != null) {
-                                        synchronized (dealer.getLock()) {
-                                            dealer.getLock().notifyAll(); // Correctly notify all threads waiting on this player's object monitor
-                                        }
-                                    }
-                                    wait();
-                                }
-                            } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-                            if(shouldPenalty){ // check
-                                shouldPenalty = false;
-                                penalty();
-                            }
-                            if(shouldRewarded){ // check
-                                shouldRewarded = false;
-                                point();
-                            }
-                            waitForAnswerAboutSet.set(false); // check
-                            if (!human){
-                                synchronized(aiThread){
-                                    aiThread.notifyAll();
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            if(!putSet){
-                table.afterPlayerAction();
-            }
-        }
-        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-    }
-
-    /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
-     */
-    private void createArtificialIntelligence() {
-        // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
-            env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate) {
-                int simulatedAction = (int) (Math.random() * env.config.tableSize);
-                keyPressed(simulatedAction);
-            }
-            env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
-    }
-
-    /**
-     * Called when the game should be terminated.
-     */
-    public void terminate() {
-        terminate = true;
-        if(!human){
-            this.aiThread.interrupt();
-        }
-        playerThread.interrupt();
-    }
-
-    /**
-     * This method is called when a key is pressed.
-     *
-     * @param slot - the slot corresponding to the key pressed.
-     */
-    public void keyPressed(int slot) {
-        if(table.getIsTableAvaliable() && !waitForAnswerAboutSet.get()){
-            actions.offer(slot);
-        }
-        if(!human && waitForAnswerAboutSet.get()){
-            synchronized (aiThread) {
-                try {
-                    while(waitForAnswerAboutSet.get()){
-                        aiThread.wait();
-                    }
-                } catch (InterruptedException e) {Thread.currentThread().interrupt();}
-            }
-        }
-    }
-
-    /**
-     * Award a point to a player and perform other related actions.
-     *
-     * @post - the player's score is increased by 1.
-     * @post - the player's score is updated in the ui.
-     */
-    public void point() {
-        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
-        env.ui.setScore(id, ++score);
-        try {
-            int countdown = (int) env.config.pointFreezeMillis / 1000;
-            for (int i = countdown; i > 0; i--)
-            {
-                env.ui.setFreeze(id, i * 1000);
-                playerThread.sleep(1000);
-            }
-            env.ui.setFreeze(id, 0);
-        } catch (InterruptedException e) {env.ui.setFreeze(id, 0);}
-    }
-
-    /**
-     * Penalize a player and perform other related actions.
-     */
-    public void penalty() {
-        try {
-            int countdown = (int) env.config.penaltyFreezeMillis / 1000;
-            for (int i = countdown; i > 0; i--)
-            {
-                env.ui.setFreeze(id, i * 1000);
-                playerThread.sleep(1000);
-            }
-            env.ui.setFreeze(id, 0);
-        } catch (InterruptedException e) {env.ui.setFreeze(id, 0);}
-    }
-
-    public int score() {
-        return score;
-    }
-
-    public Thread getPlayerThread()
-    {
-        return playerThread;
-    }
-
-    public void setShouldRewarded(boolean value)
-    {
-        shouldRewarded = value;
-    }
-
-    public void setShouldPenalty(boolean value)
-    {
-        shouldPenalty = value;
-    }
+package bguspl.set.ex;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.swing.Action;
+import bguspl.set.Env; 
+import bguspl.set.GameJournal;
+
+/**
+ * This class manages the players' threads and data
+ *
+ * @inv id >= 0
+ * @inv score >= 0
+ */
+public class Player implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+
+    /**
+     * The id of the player (starting from 0).
+     */
+    public final int id;
+
+    /**
+     * The thread representing the current player.
+     */
+    private Thread playerThread;
+
+    /**
+     * The thread of the AI (computer) player (an additional thread used to generate key presses).
+     */
+    private Thread aiThread;
+
+    /**
+     * True iff the player is human (not a computer player).
+     */
+    private final boolean human;
+
+    /**
+     * True iff game should be terminated.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * The current score of the player.
+     */
+    private int score;
+
+    public BlockingQueue<Integer> actions;
+    private Dealer dealer;
+    private volatile boolean shouldPenalty;
+    private volatile boolean shouldRewarded;
+    private volatile AtomicBoolean waitForAnswerAboutSet;
+
+    /**
+     * Signalled by the dealer when the set the player submitted was checked, and by the player when it is done with
+     * the answer (a lock rather than monitors, so waiting threads do not pin the carrier of a virtual thread).
+     */
+    private final ReentrantLock answerLock = new ReentrantLock();
+    private final Condition answerGiven = answerLock.newCondition();
+    private final Condition answerHandled = answerLock.newCondition();
+    private boolean waitForDealer;
+
+    /**
+     * The class constructor.
+     *
+     * @param env    - the environment object.
+     * @param dealer - the dealer object.
+     * @param table  - the table object.
+     * @param id     - the id of the player.
+     * @param human  - true iff the player is a human player (i.e. input is provided manually, via the keyboard).
+     */
+    public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
+        this.env = env;
+        this.dealer = dealer;
+        this.table = table;
+        this.id = id;
+        this.human = human;
+        this.terminate = false;
+        shouldPenalty = false;
+        shouldRewarded = false;
+        this.actions = new ArrayBlockingQueue<Integer>(env.config.featureSize, true);
+        waitForAnswerAboutSet = new AtomicBoolean(false);
+    }
+
+    /**
+     * The main player thread of each player starts here (main loop for the player thread).
+     */
+    @Override
+    public void run() {
+        playerThread = Thread.currentThread();
+        env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        if (!human) createArtificialIntelligence();
+
+        while (!terminate) {
+            Integer action = null;
+            try{
+                action = actions.take();
+            }
+            catch (InterruptedException e) {}
+
+            table.beforePlayerAction();
+            boolean putSet = false;
+            if (action != null){
+                if(!table.removeToken(id, action)){
+                    if(table.getPlayerCounter(id) != env.config.featureSize){
+                        table.placeToken(id, action);
+                        if(table.getPlayerCounter(id) == env.config.featureSize){ // the player has set
+                            waitForAnswerAboutSet.set(true);; // check
+                            actions.clear(); // remove all elements from the queue.
+                            try {
+                                setWaitForDealer(true);
+                                dealer.sets.put(new Claim(id, table.getVersion(), System.nanoTime(), table.getPlayerSlots(id), table.getPlayerCards(id))); // Submit the set to the dealer
+                                putSet = true;
+                                table.afterPlayerAction();
+                                dealer.wakeUp();
+                                awaitAnswer();
+                            } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                            if(shouldPenalty){ // check
+                                shouldPenalty = false;
+                                penalty();
+                            }
+                            if(shouldRewarded){ // check
+                                shouldRewarded = false;
+                                point();
+                            }
+                            waitForAnswerAboutSet.set(false); // check
+                            if (!human){
+                                answerLock.lock();
+                                try {
+                                    answerHandled.signalAll();
+                                } finally {
+                                    answerLock.unlock();
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            if(!putSet){
+                table.afterPlayerAction();
+            }
+        }
+        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
+     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     */
+    private void createArtificialIntelligence() {
+        // note: this is a very, very smart AI (!)
+        aiThread = env.threadFactory.newThread(() -> {
+            env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+            while (!terminate) {
+                int simulatedAction = (int) (Math.random() * env.config.tableSize);
+                keyPressed(simulatedAction);
+            }
+            env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+        });
+        aiThread.setName("computer-" + id);
+        aiThread.start();
+    }
+
+    /**
+     * Starts the player in the event loop engine, in which the player has no thread of its own: key presses go to the
+     * dealer, so only a computer player has a thread (generating them).
+     */
+    void startInEventLoop() {
+        if (!human) createArtificialIntelligence();
+    }
+
+    /**
+     * Called when the game should be terminated.
+     */
+    public void terminate() {
+        terminate = true;
+        if(aiThread != null){
+            this.aiThread.interrupt();
+        }
+        if(playerThread != null){
+            playerThread.interrupt();
+        }
+    }
+
+    /**
+     * Waits until the player's threads end (after terminate).
+     */
+    void join() throws InterruptedException {
+        if(playerThread != null)
+            playerThread.join();
+        else if(aiThread != null)
+            aiThread.join();
+    }
+
+    /**
+     * This method is called when a key is pressed.
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     */
+    public void keyPressed(int slot) {
+        if(env.config.eventLoop){
+            if(table.getIsTableAvaliable()){
+                try {
+                    dealer.postKeyPress(id, slot, !human);
+                } catch (InterruptedException e) {Thread.currentThread().interrupt();}
+            }
+            return;
+        }
+        if(table.getIsTableAvaliable() && !waitForAnswerAboutSet.get()){
+            if(human){
+                if(!actions.offer(slot))
+                    env.metrics.keyPressDropped();
+            }
+            else try {
+                if(!env.metrics.enabled)
+                    actions.put(slot);
+                else if(!actions.offer(slot)){
+                    long start = System.nanoTime();
+                    actions.put(slot);
+                    env.metrics.keyPressBlocked(System.nanoTime() - start);
+                }
+            } catch (InterruptedException e) {Thread.currentThread().interrupt();}
+        }
+        if(!human && waitForAnswerAboutSet.get()){
+            answerLock.lock();
+            try {
+                while(waitForAnswerAboutSet.get()){
+                    answerHandled.await();
+                }
+            } catch (InterruptedException e) {Thread.currentThread().interrupt();}
+            finally {
+                answerLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Called by the dealer when it is done with the set the player submitted (or discarded it).
+     */
+    public void notifyAnswer() {
+        setWaitForDealer(false);
+    }
+
+    private void setWaitForDealer(boolean value) {
+        answerLock.lock();
+        try {
+            waitForDealer = value;
+            if (!value) answerGiven.signalAll();
+        } finally {
+            answerLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the dealer is done with the set the player submitted.
+     */
+    private void awaitAnswer() throws InterruptedException {
+        answerLock.lock();
+        try {
+            while (waitForDealer)
+                answerGiven.await();
+        } finally {
+            answerLock.unlock();
+        }
+    }
+
+    /**
+     * Award a point to a player and perform other related actions.
+     *
+     * @post - the player's score is increased by 1.
+     * @post - the player's score is updated in the ui.
+     */
+    public void point() {
+        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
+        env.ui.setScore(id, ++score);
+        env.journal.write(GameJournal.SCORE, id, -1, -1, score);
+        env.metrics.score(id, score);
+        env.metrics.freeze(id, env.config.pointFreezeMillis);
+        try {
+            int countdown = (int) env.config.pointFreezeMillis / 1000;
+            for (int i = countdown; i > 0; i--)
+            {
+                env.ui.setFreeze(id, i * 1000);
+                playerThread.sleep(1000);
+            }
+            env.ui.setFreeze(id, 0);
+        } catch (InterruptedException e) {env.ui.setFreeze(id, 0);}
+        env.metrics.freeze(id, 0);
+    }
+
+    /**
+     * Award a point to a player, without freezing it (the event loop engine keeps track of the freeze).
+     *
+     * @post - the player's score is increased by 1.
+     * @post - the player's score is updated in the ui.
+     */
+    void addPoint() {
+        env.ui.setScore(id, ++score);
+        env.journal.write(GameJournal.SCORE, id, -1, -1, score);
+        env.metrics.score(id, score);
+    }
+
+    /**
+     * Penalize a player and perform other related actions.
+     */
+    public void penalty() {
+        env.metrics.freeze(id, env.config.penaltyFreezeMillis);
+        try {
+            int countdown = (int) env.config.penaltyFreezeMillis / 1000;
+            for (int i = countdown; i > 0; i--)
+            {
+                env.ui.setFreeze(id, i * 1000);
+                playerThread.sleep(1000);
+            }
+            env.ui.setFreeze(id, 0);
+        } catch (InterruptedException e) {env.ui.setFreeze(id, 0);}
+        env.metrics.freeze(id, 0);
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public Thread getPlayerThread()
+    {
+        return playerThread;
+    }
+
+    public void setShouldRewarded(boolean value)
+    {
+        shouldRewarded = value;
+    }
+
+    public void setShouldPenalty(boolean value)
+    {
+        shouldPenalty = value;
+    }
 }
\ No newline at end of file
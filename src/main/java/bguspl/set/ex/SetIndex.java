@@ -0,0 +1,281 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An incrementally maintained index of the legal sets formed by a collection of cards.
+ * Each card occupies a position (e.g. a slot on the table). Adding or removing a card only examines the sets that
+ * card takes part in, so the number of legal sets is always known without rescanning the whole collection.
+ *
+ * @inv positionOf[x] == y iff cardAt[y] == x
+ * @inv occupied[indexOf[p]] == p for every occupied position p
+ */
+class SetIndex {
+
+    /**
+     * The utilities used to test and complete sets.
+     */
+    private final Util util;
+
+    /**
+     * The number of cards in a legal set.
+     */
+    private final int setSize;
+
+    /**
+     * Mapping between a position and the card in it (-1 if none).
+     */
+    private final int[] cardAt;
+
+    /**
+     * Mapping between a card and its position (-1 if none).
+     */
+    private final int[] positionOf;
+
+    /**
+     * The occupied positions (only the first size entries are used) and the index of each position in it.
+     */
+    private final int[] occupied;
+    private final int[] indexOf;
+    private int size;
+
+    /**
+     * The number of legal sets in the collection.
+     */
+    private long setCount;
+
+    /**
+     * The sets (as sorted arrays of positions) each position takes part in (null if sets are only counted).
+     */
+    private final List<List<int[]>> setsOf;
+
+    /**
+     * Scratch buffers for enumerating the sets a card takes part in.
+     */
+    private final int[] chosen;
+    private final int[] cards;
+
+    /**
+     * @param util      - the utilities used to test and complete sets.
+     * @param setSize   - the number of cards in a legal set.
+     * @param positions - the number of positions.
+     * @param deckSize  - the total number of cards in the deck.
+     * @param trackSets - true iff the sets themselves should be kept (and not only counted).
+     */
+    SetIndex(Util util, int setSize, int positions, int deckSize, boolean trackSets) {
+        this.util = util;
+        this.setSize = setSize;
+        cardAt = new int[positions];
+        Arrays.fill(cardAt, -1);
+        positionOf = new int[deckSize];
+        Arrays.fill(positionOf, -1);
+        occupied = new int[positions];
+        indexOf = new int[positions];
+        Arrays.fill(indexOf, -1);
+        setsOf = trackSets ? new ArrayList<>(positions) : null;
+        if (trackSets)
+            for (int i = 0; i < positions; ++i)
+                setsOf.add(new ArrayList<>());
+        chosen = new int[Math.max(setSize, 1)];
+        cards = new int[Math.max(setSize, 1)];
+    }
+
+    /**
+     * @return - the number of legal sets in the collection.
+     */
+    long count() {
+        return setCount;
+    }
+
+    /**
+     * @return - the number of cards in the collection.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param position - a position.
+     * @return - the card in the position, or -1 if none.
+     */
+    int cardAt(int position) {
+        return cardAt[position];
+    }
+
+    /**
+     * @param position - a position.
+     * @return - the sets (as sorted arrays of positions) the position takes part in.
+     * @pre - the index keeps the sets themselves.
+     */
+    List<int[]> setsOf(int position) {
+        return Collections.unmodifiableList(setsOf.get(position));
+    }
+
+    /**
+     * @return - all the sets (as sorted arrays of positions) in the collection.
+     * @pre - the index keeps the sets themselves.
+     */
+    List<int[]> sets() {
+        List<int[]> sets = new ArrayList<>((int) setCount);
+        for (int i = 0; i < size; ++i) {
+            int position = occupied[i];
+            for (int[] set : setsOf.get(position))
+                if (set[0] == position) sets.add(set);
+        }
+        return sets;
+    }
+
+    /**
+     * Adds every card of the deck to the collection (card x in position x). The sets of a full deck are counted
+     * directly: in each feature, the cards of an ordered set either all share one of setSize values or take the values
+     * in one of setSize! orders, and tuples of identical cards are excluded. The count is exact (e.g. a deck of 3^11
+     * cards has more than 2^31 sets of 3).
+     *
+     * @param featureCount - the number of features on the cards.
+     * @pre - the collection is empty, positions == deckSize and the index does not keep the sets themselves.
+     * @throws ArithmeticException - if the number of sets does not fit in a long.
+     */
+    void fillWithDeck(int featureCount) {
+        for (int card = 0; card < positionOf.length; ++card) {
+            cardAt[card] = card;
+            positionOf[card] = card;
+            indexOf[card] = card;
+            occupied[card] = card;
+        }
+        size = positionOf.length;
+
+        if (setSize < 2) return; // a single card never forms a legal set
+        BigInteger orders = BigInteger.ONE;
+        for (int i = 2; i <= setSize; ++i)
+            orders = orders.multiply(BigInteger.valueOf(i));
+        BigInteger tuples = orders.add(BigInteger.valueOf(setSize)).pow(featureCount)
+                .subtract(BigInteger.valueOf(setSize).pow(featureCount));
+        setCount = tuples.divide(orders).longValueExact();
+    }
+
+    /**
+     * Adds a card to the collection (replacing the card in the position, if any).
+     *
+     * @param position - the position of the card.
+     * @param card     - the card id.
+     * @post - count() includes all the sets the card takes part in.
+     */
+    void add(int position, int card) {
+        if (cardAt[position] != -1) remove(position);
+        setCount += forEachSetWith(card, position, true);
+        cardAt[position] = card;
+        positionOf[card] = position;
+        indexOf[position] = size;
+        occupied[size++] = position;
+    }
+
+    /**
+     * Removes the card in a position from the collection (if any).
+     *
+     * @param position - the position of the card.
+     * @post - count() no longer includes the sets the card took part in.
+     */
+    void remove(int position) {
+        int card = cardAt[position];
+        if (card == -1) return;
+
+        int index = indexOf[position];
+        occupied[index] = occupied[--size];
+        indexOf[occupied[index]] = index;
+        indexOf[position] = -1;
+        cardAt[position] = -1;
+        positionOf[card] = -1;
+
+        if (setsOf == null) {
+            setCount -= forEachSetWith(card, position, false);
+            return;
+        }
+        List<int[]> lost = setsOf.get(position);
+        for (int[] set : lost)
+            for (int other : set)
+                if (other != position) setsOf.get(other).remove(set);
+        setCount -= lost.size();
+        lost.clear();
+    }
+
+    /**
+     * Finds the sets a card (which is not in the collection) would take part in, together with the cards in the
+     * collection. Every group of setSize - 2 cards is completed into the card that closes the set, so a single
+     * pass over the collection suffices when sets are made of 3 cards.
+     *
+     * @param card     - the card id.
+     * @param position - the position of the card.
+     * @param record   - true iff the sets found should be kept in setsOf (if sets are kept at all).
+     * @return - the number of sets found.
+     */
+    private int forEachSetWith(int card, int position, boolean record) {
+        if (setSize < 3) return forEachSmallSetWith(card, position, record);
+
+        int found = 0;
+        int r = setSize - 2; // the number of cards chosen from the collection, the last one is computed
+        cards[0] = card;
+        for (int i = 0; i < r; ++i)
+            chosen[i] = i;
+
+        while (chosen[r - 1] < size) {
+            for (int i = 0; i < r; ++i)
+                cards[i + 1] = cardAt[occupied[chosen[i]]];
+            int completion = util.completeSet(cards, setSize - 1);
+            // the completing card must come after the chosen ones, so that each set is found exactly once
+            if (completion >= 0 && completion < positionOf.length && positionOf[completion] != -1
+                    && indexOf[positionOf[completion]] > chosen[r - 1]) {
+                ++found;
+                if (record && setsOf != null) recordSet(position, r, positionOf[completion]);
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && chosen[t] == size - r + t) --t;
+            chosen[t]++;
+            for (int i = t + 1; i < r; i++) chosen[i] = chosen[i - 1] + 1;
+        }
+        return found;
+    }
+
+    /**
+     * Same as forEachSetWith for sets of less than 3 cards, which cannot be completed (the cards are tested instead).
+     */
+    private int forEachSmallSetWith(int card, int position, boolean record) {
+        int found = 0;
+        cards[0] = card;
+        if (setSize == 1) return util.testSet(cards) ? 1 : 0;
+        for (int i = 0; i < size; ++i) {
+            cards[1] = cardAt[occupied[i]];
+            if (util.testSet(cards)) {
+                ++found;
+                if (record && setsOf != null) {
+                    int[] set = {position, occupied[i]};
+                    Arrays.sort(set);
+                    for (int member : set)
+                        setsOf.get(member).add(set);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Records a set made of a new card, the chosen cards and a completing card.
+     */
+    private void recordSet(int position, int r, int completionPosition) {
+        int[] set = new int[setSize];
+        set[0] = position;
+        for (int i = 0; i < r; ++i)
+            set[i + 1] = occupied[chosen[i]];
+        set[setSize - 1] = completionPosition;
+        Arrays.sort(set);
+        for (int member : set)
+            setsOf.get(member).add(set);
+    }
+}
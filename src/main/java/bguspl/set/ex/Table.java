@@ -1,251 +1,394 @@
-package bguspl.set.ex;
-import bguspl.set.Env;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
-
-/**
- * This class contains the data that is visible to the player.
- *
- * @inv slotToCard[x] == y iff cardToSlot[y] == x
- */
-public class Table {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * Mapping between a slot and the card placed in it (null if none).
-     */
-    protected final Integer[] slotToCard; // card per slot (if any)
-
-    /**
-     * Mapping between a card and the slot it is in (null if none).
-     */
-    protected final Integer[] cardToSlot; // slot per card (if any)
-
-    private volatile AtomicBoolean isTableAvaliable;
-    private int[][] tokenOnTable;
-    private int[] tokenCounterOfPlayers;
-    private int activePlayers;
-    private int activeDealer;
-    private int waitingDealer;
-
-    /**
-     * Constructor for testing.
-     *
-     * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
-     */
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
-
-        this.env = env;
-        this.slotToCard = slotToCard;
-        this.cardToSlot = cardToSlot;
-
-        isTableAvaliable = new AtomicBoolean(false);
-        this.tokenOnTable = new int[env.config.players][env.config.featureSize];
-        for(int i = 0; i < tokenOnTable.length; i++){
-            for(int j = 0; j < tokenOnTable[i].length; j++){
-                tokenOnTable[i][j] = -1;
-            }
-        }
-        tokenCounterOfPlayers = new int[env.config.players];
-        for(int element : tokenCounterOfPlayers){
-            element = 0;
-        }
-        this.activePlayers = 0;
-        this.activeDealer = 0;
-        this.waitingDealer = 0;
-    }
-
-    /**
-     * Constructor for actual usage.
-     *
-     * @param env - the game environment objects.
-     */
-    public Table(Env env) {
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
-    }
-
-    /**
-     * This method prints all possible legal sets of cards that are currently on the table.
-     */
-    public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
-            StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
-            System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
-        });
-    }
-
-    /**
-     * Count the number of cards currently on the table.
-     *
-     * @return - the number of cards on the table.
-     */
-    public int countCards() {
-        int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
-        return cards;
-    }
-
-    /**
-     * Places a card on the table in a grid slot.
-     * @param card - the card id to place in the slot.
-     * @param slot - the slot in which the card should be placed.
-     *
-     * @post - the card placed is on the table, in the assigned slot.
-     */
-    public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
-        env.ui.placeCard(card, slot);
-    }
-
-    /**
-     * Removes a card from a grid slot on the table.
-     * @param slot - the slot from which to remove the card.
-     */
-    public void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        if (slotToCard[slot] != null){
-            int card = slotToCard[slot];
-            cardToSlot[card] = null;
-            slotToCard[slot] = null;
-            env.ui.removeCard(slot);
-
-            for (int i = 0; i < tokenOnTable.length; i++){
-                removeToken(i,slot);
-            }
-            // romove token in queue to all players
-        }
-    }
-
-    /**
-     * Places a player token on a grid slot.
-     * @param player - the player the token belongs to.
-     * @param slot   - the slot on which to place the token.
-     */
-    public void placeToken(int player, int slot) { 
-        if(slotToCard[slot] != null && tokenCounterOfPlayers[player] < env.config.featureSize){
-            boolean done = false;
-            for (int i = 0; i < env.config.featureSize && !done; i++){
-                if(tokenOnTable[player][i] == -1){
-                    tokenOnTable[player][i] = slot;
-                    tokenCounterOfPlayers[player] ++;
-                    done = true;
-                    env.ui.placeToken(player, slot);
-                }
-            }
-        }
-    }
-
-    /**
-     * Removes a token of a player from a grid slot.
-     * @param player - the player the token belongs to.
-     * @param slot   - the slot from which to remove the token.
-     * @return       - true iff a token was successfully removed.
-     */
-    public boolean removeToken(int player, int slot) { 
-        for(int i = 0; i < env.config.featureSize; i++){
-            if (tokenOnTable[player][i] == slot){
-                env.ui.removeToken(player, slot);
-                tokenOnTable[player][i] = -1;
-                tokenCounterOfPlayers[player] --;
-                return true;
-            }
-        }
-        return false;
-    }
-
-    public int cardInSlot(int slot){
-        if(slotToCard[slot] != null){
-            return slotToCard[slot];
-        }
-        return -1;
-    }
-
-    public int SlotOfcard(int card){
-        if(cardToSlot[card] != null){
-            return cardToSlot[card];
-        }
-        return -1;
-    }
-
-    public boolean getIsTableAvaliable(){
-        return isTableAvaliable.get();
-    }
-
-    public void setTableAvaliable(boolean isAvaliable){
-        isTableAvaliable.set(isAvaliable);
-    }
-
-    public int getPlayerCounter(int id){
-        return tokenCounterOfPlayers[id];
-    }
-
-    public int[] getPlayerCards(int id){
-        int[] arr = new int[env.config.featureSize];
-        for(int i = 0; i < env.config.featureSize; i++){
-            arr[i] = slotToCard[tokenOnTable[id][i]];
-        }
-        return arr;
-    }
-
-    public int[] getPlayerSlots(int id){
-        int[] arr = new int[env.config.featureSize];
-        for(int i = 0; i < env.config.featureSize; i++){
-            arr[i] = tokenOnTable[id][i];
-        }
-        return arr;
-    }
-
-    public synchronized void beforePlayerAction(){
-        while (!(waitingDealer == 0 && activeDealer == 0)){
-            try{
-                wait();
-            }
-            catch (InterruptedException ignored){}
-        }
-        activePlayers++;
-    }
-
-    public synchronized void afterPlayerAction(){
-        activePlayers--;
-        notifyAll();
-    }
-
-    public synchronized void beforeDealerAction(){
-        waitingDealer++;
-        while (!(activePlayers == 0 && activeDealer == 0)){
-            try{
-                wait();
-            }
-            catch (InterruptedException ignored){}
-        }
-        waitingDealer--;
-        activeDealer++;
-    }
-
-    public synchronized void afterDealerAction(){
-        activeDealer--;
-        notifyAll();
-    }
+package bguspl.set.ex;
+import bguspl.set.Env;
+import bguspl.set.GameJournal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class contains the data that is visible to the player.
+ *
+ * @inv slotToCard[x] == y iff cardToSlot[y] == x
+ */
+public class Table {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Mapping between a slot and the card placed in it (null if none).
+     */
+    protected final Integer[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (null if none).
+     */
+    protected final Integer[] cardToSlot; // slot per card (if any)
+
+    /**
+     * The legal sets currently on the table (updated on every card placement and removal).
+     */
+    private final SetIndex setIndex;
+
+    /**
+     * The version of the table's contents (incremented on every card placement and removal).
+     */
+    private volatile long version;
+
+    /**
+     * The hints of the latest version of the table asked for.
+     */
+    private final HintCache hintCache;
+
+    private volatile AtomicBoolean isTableAvaliable;
+    private int[][] tokenOnTable;
+    private int[] tokenCounterOfPlayers;
+    private int activePlayers;
+    private int activeDealer;
+    private int waitingDealer;
+
+    /**
+     * Guards the counters of the players and dealer actions (a lock rather than the table's monitor, so threads waiting
+     * for the table do not pin the carrier of a virtual thread).
+     */
+    private final ReentrantLock gate = new ReentrantLock();
+    private final Condition gateChanged = gate.newCondition();
+
+    /**
+     * Constructor for testing.
+     *
+     * @param env        - the game environment objects.
+     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
+     */
+    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+
+        this.env = env;
+        this.slotToCard = slotToCard;
+        this.cardToSlot = cardToSlot;
+
+        isTableAvaliable = new AtomicBoolean(false);
+        this.tokenOnTable = new int[env.config.players][env.config.featureSize];
+        for(int i = 0; i < tokenOnTable.length; i++){
+            for(int j = 0; j < tokenOnTable[i].length; j++){
+                tokenOnTable[i][j] = -1;
+            }
+        }
+        tokenCounterOfPlayers = new int[env.config.players];
+        for(int element : tokenCounterOfPlayers){
+            element = 0;
+        }
+        this.activePlayers = 0;
+        this.activeDealer = 0;
+        this.waitingDealer = 0;
+
+        setIndex = new SetIndex(env.util, env.config.featureSize, slotToCard.length, cardToSlot.length, true);
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            if (slotToCard[slot] != null) setIndex.add(slot, slotToCard[slot]);
+        hintCache = new HintCache(env.util);
+    }
+
+    /**
+     * Constructor for actual usage.
+     *
+     * @param env - the game environment objects.
+     */
+    public Table(Env env) {
+        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+    }
+
+    /**
+     * This method prints all possible legal sets of cards that are currently on the table.
+     */
+    public void hints() {
+        for (Hint hint : getHints())
+            System.out.println("Hint: Set found: " + hint);
+    }
+
+    /**
+     * Returns all possible legal sets of cards that are currently on the table.
+     * The hints are computed once per version of the table, and shared by all the callers until it changes.
+     *
+     * @return - an unmodifiable list of the hints, in ascending order of their first slot.
+     */
+    public List<Hint> getHints() {
+        return hintCache.get(version, setIndex::sets, slotToCard);
+    }
+
+    /**
+     * @return - the version of the table's contents, which changes whenever a card is placed or removed.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Count the number of cards currently on the table.
+     *
+     * @return - the number of cards on the table.
+     */
+    public int countCards() {
+        int cards = 0;
+        for (Integer card : slotToCard)
+            if (card != null)
+                ++cards;
+        return cards;
+    }
+
+    /**
+     * Count the number of legal sets currently on the table.
+     *
+     * @return - the number of legal sets on the table.
+     */
+    public int countSets() {
+        return (int) setIndex.count();
+    }
+
+    /**
+     * Returns the legal sets currently on the table.
+     *
+     * @return - a list of the legal sets on the table, each one is a sorted array of the slots of its cards.
+     */
+    public List<int[]> getSets() {
+        return setIndex.sets();
+    }
+
+    /**
+     * Returns the legal sets a slot on the table takes part in.
+     *
+     * @param slot - the slot.
+     * @return - a list of the legal sets containing the card in the slot, each one is a sorted array of slots.
+     */
+    public List<int[]> getSlotSets(int slot) {
+        return setIndex.setsOf(slot);
+    }
+
+    /**
+     * Places a card on the table in a grid slot.
+     * @param card - the card id to place in the slot.
+     * @param slot - the slot in which the card should be placed.
+     *
+     * @post - the card placed is on the table, in the assigned slot.
+     */
+    public void placeCard(int card, int slot) {
+        try {
+            Thread.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {}
+
+        cardToSlot[card] = slot;
+        slotToCard[slot] = card;
+        setIndex.add(slot, card);
+        ++version;
+        env.journal.write(GameJournal.CARD_PLACED, -1, slot, card, version);
+        env.ui.placeCard(card, slot);
+    }
+
+    /**
+     * Removes a card from a grid slot on the table.
+     * @param slot - the slot from which to remove the card.
+     */
+    public void removeCard(int slot) {
+        try {
+            Thread.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {}
+
+        if (slotToCard[slot] != null){
+            int card = slotToCard[slot];
+            cardToSlot[card] = null;
+            slotToCard[slot] = null;
+            setIndex.remove(slot);
+            ++version;
+            env.journal.write(GameJournal.CARD_REMOVED, -1, slot, card, version);
+            env.ui.removeCard(slot);
+
+            for (int i = 0; i < tokenOnTable.length; i++){
+                removeToken(i,slot);
+            }
+            // romove token in queue to all players
+        }
+    }
+
+    /**
+     * Replaces the cards in some grid slots, as a single change of the table (with no dealing delay).
+     * The tokens on the replaced slots are removed, and the user interface is updated once for all the slots.
+     * @param slots - the slots to replace the cards in (each one at most once).
+     * @param cards - the card ids to place in the slots (cards[i] goes to slots[i], -1 to leave the slot empty).
+     *
+     * @post - every card placed is on the table, in its assigned slot.
+     */
+    public void replaceCards(int[] slots, int[] cards) {
+        for (int i = 0; i < slots.length; i++){
+            int slot = slots[i];
+            if (slotToCard[slot] != null){
+                int card = slotToCard[slot];
+                cardToSlot[card] = null;
+                slotToCard[slot] = null;
+                setIndex.remove(slot);
+                for (int player = 0; player < tokenOnTable.length; player++){
+                    if (clearToken(player, slot))
+                        env.journal.write(GameJournal.TOKEN_REMOVED, player, slot, card, -1);
+                }
+                env.journal.write(GameJournal.CARD_REMOVED, -1, slot, card, version + 1);
+            }
+            if (cards[i] != -1){
+                cardToSlot[cards[i]] = slot;
+                slotToCard[slot] = cards[i];
+                setIndex.add(slot, cards[i]);
+                env.journal.write(GameJournal.CARD_PLACED, -1, slot, cards[i], version + 1);
+            }
+        }
+        ++version;
+        env.ui.replaceCards(slots, cards);
+    }
+
+    /**
+     * Places a player token on a grid slot.
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot on which to place the token.
+     */
+    public void placeToken(int player, int slot) { 
+        if(slotToCard[slot] != null && tokenCounterOfPlayers[player] < env.config.featureSize){
+            boolean done = false;
+            for (int i = 0; i < env.config.featureSize && !done; i++){
+                if(tokenOnTable[player][i] == -1){
+                    tokenOnTable[player][i] = slot;
+                    tokenCounterOfPlayers[player] ++;
+                    done = true;
+                    env.journal.write(GameJournal.TOKEN_PLACED, player, slot, slotToCard[slot], -1);
+                    env.ui.placeToken(player, slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a token of a player from a grid slot.
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot from which to remove the token.
+     * @return       - true iff a token was successfully removed.
+     */
+    public boolean removeToken(int player, int slot) { 
+        if (clearToken(player, slot)){
+            env.journal.write(GameJournal.TOKEN_REMOVED, player, slot, slotToCard[slot] == null ? -1 : slotToCard[slot], -1);
+            env.ui.removeToken(player, slot);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a token of a player from a grid slot, without updating the user interface.
+     * @return - true iff a token was removed.
+     */
+    private boolean clearToken(int player, int slot) {
+        for(int i = 0; i < env.config.featureSize; i++){
+            if (tokenOnTable[player][i] == slot){
+                tokenOnTable[player][i] = -1;
+                tokenCounterOfPlayers[player] --;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int cardInSlot(int slot){
+        if(slotToCard[slot] != null){
+            return slotToCard[slot];
+        }
+        return -1;
+    }
+
+    public int SlotOfcard(int card){
+        if(cardToSlot[card] != null){
+            return cardToSlot[card];
+        }
+        return -1;
+    }
+
+    public boolean getIsTableAvaliable(){
+        return isTableAvaliable.get();
+    }
+
+    public void setTableAvaliable(boolean isAvaliable){
+        isTableAvaliable.set(isAvaliable);
+    }
+
+    public int getPlayerCounter(int id){
+        return tokenCounterOfPlayers[id];
+    }
+
+    public int[] getPlayerCards(int id){
+        int[] arr = new int[env.config.featureSize];
+        for(int i = 0; i < env.config.featureSize; i++){
+            arr[i] = slotToCard[tokenOnTable[id][i]];
+        }
+        return arr;
+    }
+
+    public int[] getPlayerSlots(int id){
+        int[] arr = new int[env.config.featureSize];
+        for(int i = 0; i < env.config.featureSize; i++){
+            arr[i] = tokenOnTable[id][i];
+        }
+        return arr;
+    }
+
+    public void beforePlayerAction(){
+        long start = env.metrics.enabled ? System.nanoTime() : 0;
+        gate.lock();
+        try{
+            while (!(waitingDealer == 0 && activeDealer == 0)){
+                gateChanged.awaitUninterruptibly();
+            }
+            activePlayers++;
+        }
+        finally{
+            gate.unlock();
+        }
+        if (env.metrics.enabled)
+            env.metrics.playerGateEntered(System.nanoTime() - start);
+    }
+
+    public void afterPlayerAction(){
+        gate.lock();
+        try{
+            activePlayers--;
+            gateChanged.signalAll();
+        }
+        finally{
+            gate.unlock();
+        }
+    }
+
+    public void beforeDealerAction(){
+        long start = env.metrics.enabled ? System.nanoTime() : 0;
+        gate.lock();
+        try{
+            waitingDealer++;
+            while (!(activePlayers == 0 && activeDealer == 0)){
+                gateChanged.awaitUninterruptibly();
+            }
+            waitingDealer--;
+            activeDealer++;
+        }
+        finally{
+            gate.unlock();
+        }
+        if (env.metrics.enabled)
+            env.metrics.dealerGateEntered(System.nanoTime() - start);
+    }
+
+    public void afterDealerAction(){
+        gate.lock();
+        try{
+            activeDealer--;
+            gateChanged.signalAll();
+        }
+        finally{
+            gate.unlock();
+        }
+    }
 }
\ No newline at end of file
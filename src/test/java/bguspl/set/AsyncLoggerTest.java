@@ -0,0 +1,136 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLoggerTest {
+
+    /**
+     * Collects the messages logged (optionally waiting on a latch before each one, as a slow disk would).
+     */
+    private static final class Collector extends Handler {
+        final List<String> messages = new ArrayList<>();
+        final CountDownLatch release;
+
+        Collector(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {}
+            if (record.getLevel() == Level.SEVERE)
+                synchronized (messages) {
+                    messages.add(record.getMessage());
+                }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static Logger logger(Collector collector, Level level) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(collector);
+        logger.setLevel(level);
+        return logger;
+    }
+
+    @Test
+    void log_EventsAreFormattedInOrderByTheWriter() throws Exception {
+        Collector collector = new Collector(new CountDownLatch(0));
+        AsyncLogger logger = new AsyncLogger(logger(collector, Level.ALL), 1 << 16);
+        int threads = 4, events = 5_000;
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; ++t) {
+            int player = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < events; ++i)
+                    logger.log(Level.SEVERE, "player {} placing token on slot {}", player, i);
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers)
+            writer.join();
+        logger.log(Level.SEVERE, "replacing cards in slots {} with {}", new int[]{1, 2}, new int[]{7, -1});
+        logger.close();
+
+        assertEquals(threads * events + 1, collector.messages.size());
+        int[] next = new int[threads];
+        for (String message : collector.messages.subList(0, threads * events)) {
+            String[] words = message.split(" ");
+            int player = Integer.parseInt(words[1]);
+            assertEquals(next[player]++, Integer.parseInt(words[6]));
+        }
+        assertEquals("replacing cards in slots [1, 2] with [7, -1]", collector.messages.get(threads * events));
+        assertEquals(0, logger.dropped());
+    }
+
+    @Test
+    void log_FullBufferDropsEventsInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Collector collector = new Collector(release);
+        AsyncLogger logger = new AsyncLogger(logger(collector, Level.ALL), 4);
+        for (int i = 0; i < 100; ++i)
+            logger.log(Level.SEVERE, "event {}", i);
+        release.countDown();
+        logger.close();
+
+        assertTrue(logger.dropped() > 0);
+        assertEquals(100, collector.messages.size() + logger.dropped());
+    }
+
+    @Test
+    void log_IdleWriterIsWokenUpByTheNextEvent() throws Exception {
+        Collector collector = new Collector(new CountDownLatch(0));
+        AsyncLogger logger = new AsyncLogger(logger(collector, Level.ALL), 4);
+        for (int i = 1; i <= 3; ++i) {
+            logger.log(Level.SEVERE, "event {}", i);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (size(collector) < i && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            assertEquals(i, size(collector));
+            // let the writer park before the next event
+            Thread.sleep(50);
+        }
+        logger.close();
+
+        assertEquals(3, collector.messages.size());
+    }
+
+    private static int size(Collector collector) {
+        synchronized (collector.messages) {
+            return collector.messages.size();
+        }
+    }
+
+    @Test
+    void log_DisabledLevelIsNotPublished() throws Exception {
+        Collector collector = new Collector(new CountDownLatch(0));
+        AsyncLogger logger = new AsyncLogger(logger(collector, Level.OFF), 4);
+        for (int i = 0; i < 100; ++i)
+            logger.log(Level.SEVERE, "event {}", i);
+        logger.close();
+
+        assertEquals(0, collector.messages.size());
+        assertEquals(0, logger.dropped());
+    }
+}
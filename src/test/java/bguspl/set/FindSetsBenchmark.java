@@ -0,0 +1,96 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the pair completion set finder (over the feature table and over packed cards) against the combinations
+ * enumerator.
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes bguspl.set.FindSetsBenchmark
+ */
+public class FindSetsBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Logger logger = Logger.getAnonymousLogger();
+        Random random = new Random(42);
+
+        // the full deck is only enumerated where C(n, 3) is still reasonable, larger decks are sampled
+        run(logger, random, 4, 81);
+        run(logger, random, 5, 243);
+        run(logger, random, 6, 300);
+        run(logger, random, 7, 300);
+        runParallel(logger, 7);
+    }
+
+    /**
+     * Compares the sequential and the parallel search on a full deck, for all sets and for a single one.
+     */
+    private static void runParallel(Logger logger, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("FindSetsParallelThreshold", "0");
+        UtilImpl sequential = new UtilImpl(new Config(logger, properties));
+        properties.put("FindSetsParallelThreshold", "1");
+        UtilImpl parallel = new UtilImpl(new Config(logger, properties));
+        List<Integer> deck = IntStream.range(0, (int) Math.pow(3, featureCount)).boxed().collect(Collectors.toList());
+
+        for (int count : new int[]{Integer.MAX_VALUE, 1}) {
+            long sequentialTime = measure(() -> sequential.findSets(deck, count).size());
+            long parallelTime = measure(() -> parallel.findSets(deck, count).size());
+            System.out.printf("FeatureCount=%d cards=%d count=%d sequential=%.3fms parallel=%.3fms (%d workers)%n",
+                    featureCount, deck.size(), count, sequentialTime / 1e6, parallelTime / 1e6,
+                    ForkJoinPool.getCommonPoolParallelism());
+        }
+    }
+
+    private static void run(Logger logger, Random random, int featureCount, int cards) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        Config config = new Config(logger, properties);
+        UtilImpl util = new UtilImpl(config);
+        PackedUtil packed = new PackedUtil(config);
+
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, random);
+        List<Integer> cardsList = new ArrayList<>(deck.subList(0, Math.min(cards, deck.size())));
+
+        long enumerated = measure(() -> util.enumerateSets(cardsList, Integer.MAX_VALUE).size());
+        long completed = measure(() -> util.findSets(cardsList, Integer.MAX_VALUE).size());
+        long packedCompleted = measure(() -> packed.findSets(cardsList, Integer.MAX_VALUE).size());
+        int expected = util.enumerateSets(cardsList, Integer.MAX_VALUE).size();
+        int actual = util.findSets(cardsList, Integer.MAX_VALUE).size();
+
+        System.out.printf("FeatureCount=%d cards=%d sets=%d/%d enumerate=%.3fms pairs=%.3fms (%.1fx) packed=%.3fms (%.1fx)%n",
+                featureCount, cardsList.size(), actual, expected, enumerated / 1e6,
+                completed / 1e6, (double) enumerated / completed,
+                packedCompleted / 1e6, (double) enumerated / packedCompleted);
+    }
+
+    /**
+     * @return - the average time (in nanoseconds) of a single call, after warmup.
+     */
+    private static long measure(Supplier<Integer> task) {
+        int blackhole = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; ++i)
+            blackhole += task.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; ++i)
+            blackhole += task.get();
+        long elapsed = (System.nanoTime() - start) / MEASURED_ROUNDS;
+        if (blackhole == 42) System.out.print("");
+        return elapsed;
+    }
+}
@@ -0,0 +1,92 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class GameHostTest {
+
+    @Test
+    void submit_AllGamesRunToCompletion() throws Exception {
+        runGames(new Properties());
+    }
+
+    @Test
+    void submit_AllGamesRunToCompletionInEventLoop() throws Exception {
+        Properties properties = new Properties();
+        properties.put("EventLoop", "True");
+        runGames(properties);
+    }
+
+    @Test
+    void submit_HeadlessGamesHaveNoDelaysAndAnnounceTheWinners() throws Exception {
+        Properties properties = new Properties();
+        properties.put("Headless", "True");
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "1");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        assertEquals(0, config.humanPlayers);
+        assertEquals(2, config.computerPlayers);
+        assertEquals(0, config.tableDelayMillis + config.pointFreezeMillis + config.penaltyFreezeMillis);
+
+        List<UserInterfaceHeadless> uis = new ArrayList<>();
+        try (GameHost host = new GameHost(logger, config, new UtilImpl(config), () -> {
+            UserInterfaceHeadless ui = new UserInterfaceHeadless();
+            synchronized (uis) {
+                uis.add(ui);
+            }
+            return ui;
+        }, 2)) {
+            List<GameStats> results = new ArrayList<>();
+            List<Future<GameStats>> games = new ArrayList<>();
+            for (int i = 0; i < 4; ++i)
+                games.add(host.submit());
+            for (Future<GameStats> game : games)
+                results.add(game.get(1, TimeUnit.MINUTES));
+
+            for (UserInterfaceHeadless ui : uis)
+                assertTrue(ui.winners().length > 0);
+            assertTrue(GameStats.summary(results, 1).startsWith("{\"games\":4,"));
+        }
+    }
+
+    private static void runGames(Properties properties) throws Exception {
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+        Util util = new UtilImpl(config);
+
+        try (GameHost host = new GameHost(logger, config, util, () -> mock(UserInterface.class), 2)) {
+            List<Future<GameStats>> games = new ArrayList<>();
+            for (int i = 0; i < 4; ++i)
+                games.add(host.submit());
+
+            for (int i = 0; i < games.size(); ++i) {
+                GameStats stats = games.get(i).get(1, TimeUnit.MINUTES);
+                assertEquals(i, stats.game);
+                assertEquals(2, stats.scores.length);
+                assertEquals(stats.sets, stats.scores[0] + stats.scores[1]);
+                // the game ends when no sets are left among the cards that were not collected
+                assertTrue(stats.sets * config.featureSize >= config.deckSize - 20);
+            }
+            assertEquals(0, host.runningGames());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+
+    @Test
+    void write_ConcurrentWritersReadBackInOrder(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal.bin");
+        int threads = 4, events = 100_000;
+        try (GameJournal journal = GameJournal.open(file, 1 << 20)) {
+            Thread[] writers = new Thread[threads];
+            for (int t = 0; t < threads; ++t) {
+                int player = t;
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < events; ++i)
+                        journal.write(GameJournal.TOKEN_PLACED, player, i % 12, i, i);
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers)
+                writer.join();
+            assertEquals((long) threads * events, journal.written());
+            assertEquals(0, journal.dropped());
+        }
+
+        long[] next = new long[threads];
+        long read = 0;
+        try (JournalReader reader = new JournalReader(file)) {
+            while (reader.next()) {
+                ++read;
+                int player = reader.player();
+                assertEquals(GameJournal.TOKEN_PLACED, reader.type());
+                // the events of each writer are in the order it wrote them
+                assertEquals(next[player]++, reader.value());
+                assertEquals(reader.value(), reader.card());
+                assertEquals(reader.value() % 12, reader.slot());
+            }
+        }
+        assertEquals((long) threads * events, read);
+    }
+
+    @Test
+    void write_EventsBeyondTheMaximalSizeAreDropped(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal.bin");
+        GameJournal journal = GameJournal.open(file, 1);
+        long capacity = (GameJournal.SEGMENT_SIZE - GameJournal.HEADER_SIZE) / GameJournal.RECORD_SIZE;
+        for (long i = 0; i < capacity + 10; ++i)
+            journal.write(GameJournal.SCORE, 0, -1, -1, i);
+        assertEquals(capacity, journal.written());
+        assertEquals(10, journal.dropped());
+        journal.close();
+        assertFalse(journal.enabled());
+        journal.write(GameJournal.SCORE, 0, -1, -1, 0);
+
+        long read = 0;
+        try (JournalReader reader = new JournalReader(file)) {
+            while (reader.next())
+                assertEquals(read++, reader.value());
+        }
+        assertEquals(capacity, read);
+    }
+
+    @Test
+    void next_JournalThatWasNotClosedEndsAtTheLastEvent(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("journal.bin");
+        GameJournal journal = GameJournal.open(file, 1 << 20);
+        journal.write(GameJournal.CLAIM, 1, 2, 3, 4);
+        journal.write(GameJournal.VERDICT, 1, -1, -1, 1);
+
+        try (JournalReader reader = new JournalReader(file)) {
+            assertTrue(reader.next());
+            assertEquals("claim", JournalReader.typeName(reader.type()));
+            assertTrue(reader.next());
+            assertEquals("verdict", JournalReader.typeName(reader.type()));
+            assertFalse(reader.next());
+        }
+        journal.close();
+    }
+}
@@ -0,0 +1,103 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class GameMetricsTest {
+
+    @Test
+    void register_AttributesAreReadThroughJmx() throws Exception {
+        GameMetrics metrics = new GameMetrics(2);
+        metrics.register("bguspl.set:type=GameMetricsTest", Logger.getAnonymousLogger());
+        try {
+            metrics.claimResolved(1);
+            metrics.claimResolved(0);
+            metrics.claimResolved(0);
+            metrics.claimResolved(-1);
+            metrics.keyPressDropped();
+            metrics.keyPressBlocked(500);
+            metrics.score(1, 3);
+            metrics.freeze(0, 60_000);
+            metrics.verdictLatency(1_000);
+            metrics.verdictLatency(1_000_000);
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("bguspl.set:type=GameMetricsTest");
+            assertEquals(4L, server.getAttribute(name, "ClaimsResolved"));
+            assertEquals(2L, server.getAttribute(name, "InvalidClaims"));
+            assertEquals(1L, server.getAttribute(name, "DroppedKeyPresses"));
+            assertEquals(1L, server.getAttribute(name, "BlockedKeyPresses"));
+            assertEquals(500L, server.getAttribute(name, "KeyPressBlockedNanos"));
+            long p50 = (long) server.getAttribute(name, "VerdictLatencyP50Nanos");
+            long p99 = (long) server.getAttribute(name, "VerdictLatencyP99Nanos");
+            assertTrue(p50 <= 1_000 && p50 > 1_000 - 1_000 / 16);
+            assertTrue(p99 <= 1_000_000 && p99 > 1_000_000 - 1_000_000 / 16);
+            assertArrayEquals(new int[]{0, 3}, (int[]) server.getAttribute(name, "PlayerScores"));
+            long[] freeze = (long[]) server.getAttribute(name, "PlayerFreezeMillis");
+            assertTrue(freeze[0] > 0 && freeze[1] == 0);
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName("bguspl.set:type=GameMetricsTest")));
+    }
+
+    @Test
+    void disabled_CountsNothing() {
+        GameMetrics.DISABLED.claimResolved(1);
+        GameMetrics.DISABLED.dealerIteration();
+        GameMetrics.DISABLED.playerGateEntered(10);
+        assertEquals(0, GameMetrics.DISABLED.getClaimsResolved());
+        assertEquals(0, GameMetrics.DISABLED.getDealerIterations());
+        assertEquals(0, GameMetrics.DISABLED.getPlayerGateEntries());
+    }
+
+    @Test
+    void game_MetricsMatchTheGame() {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+
+        GameMetrics metrics = new GameMetrics(config.players);
+        Env env = new Env(logger, config, mock(UserInterface.class), new UtilImpl(config), Thread::new,
+                GameJournal.DISABLED, metrics);
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        dealer.run();
+
+        assertEquals(dealer.getSetsCollected(), metrics.getValidClaims());
+        assertEquals(Arrays.stream(players).mapToInt(Player::score).sum(), Arrays.stream(metrics.getPlayerScores()).sum());
+        assertTrue(metrics.getClaimsResolved() >= metrics.getValidClaims() + metrics.getInvalidClaims());
+        assertTrue(metrics.getPlayerGateEntries() > 0);
+        assertTrue(metrics.getDealerGateEntries() > 0);
+        assertTrue(metrics.getDealerIterations() > 0);
+        assertTrue(metrics.verdictLatencyNanos(50) > 0);
+        assertTrue(metrics.verdictLatencyNanos(99) >= metrics.verdictLatencyNanos(50));
+        assertTrue(metrics.verdictLatencyNanos(100) >= metrics.verdictLatencyNanos(99));
+    }
+}
@@ -0,0 +1,97 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the full pipeline of a game (key presses -> Player.actions -> tokens -> Dealer.sets -> verdicts) with many
+ * computer players on a wide table and no delays, and reports for each number of players:
+ * - the claims resolved per second (and the sets collected per second);
+ * - the p50/p99/p99.9/max latency from the submission of a claim to its verdict;
+ * - the share of the computer players' time spent blocked on a full key press queue (a computer player waits for
+ * room rather than dropping a key press, so this is how the inputs the pipeline cannot take show up);
+ * - the CPU time of the process per claim, and the share of it taken by the dealer thread.
+ * Each number of players plays one game for the given number of seconds (or until it ends), so the point where the
+ * claims per second stop growing (and the dealer's CPU reaches a full core) shows where the design stops scaling.
+ * The arguments are configuration properties (key=value) over the defaults below, where ComputerPlayers may be a
+ * comma separated list of the numbers of players to run, and Seconds is the length of each game.
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes bguspl.set.LoadGenerator [key=value...]
+ */
+public class LoadGenerator {
+
+    private static final String[][] DEFAULTS = {
+            {"Headless", "True"},
+            {"HumanPlayers", "0"},
+            {"ComputerPlayers", "16,64,256,512"},
+            {"Rows", "6"},
+            {"Columns", "8"},
+            {"FeatureCount", "7"},
+            {"TurnTimeoutSeconds", "0"},
+            {"LogLevel", "OFF"},
+            {"Seconds", "10"},
+    };
+
+    public static void main(String[] args) throws InterruptedException {
+        Properties properties = new Properties();
+        for (String[] property : DEFAULTS)
+            properties.put(property[0], property[1]);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) throw new IllegalArgumentException("expected key=value: " + arg);
+            properties.put(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+        }
+        long seconds = Long.parseLong(properties.getProperty("Seconds"));
+        String[] playerCounts = properties.getProperty("ComputerPlayers").split(",");
+
+        System.out.printf("%7s %9s %9s %10s %10s %10s %10s %10s %11s %8s%n", "players", "claims/s", "sets/s",
+                "p50 us", "p99 us", "p99.9 us", "max us", "blocked", "cpu us/claim", "dealer");
+        for (String players : playerCounts) {
+            properties.put("ComputerPlayers", players.trim());
+            run(properties, seconds * 1000);
+        }
+    }
+
+    private static void run(Properties properties, long millis) throws InterruptedException {
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.parse(properties.getProperty("LogLevel")));
+        Util util = config.packedCards ? new PackedUtil(config) : new UtilImpl(config);
+        GameMetrics metrics = new GameMetrics(config.players);
+        Env env = new Env(logger, config, new UserInterfaceHeadless(), util, GameThreads.of(config, logger),
+                GameJournal.DISABLED, metrics);
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        Thread dealerThread = new Thread(dealer, "dealer");
+        long cpuBefore = os.getProcessCpuTime(), start = System.nanoTime();
+        dealerThread.start();
+        dealerThread.join(millis);
+        long dealerCpu = threads.getThreadCpuTime(dealerThread.getId());
+        long elapsed = System.nanoTime() - start, cpu = os.getProcessCpuTime() - cpuBefore;
+        long claims = metrics.getClaimsResolved(), sets = metrics.getValidClaims();
+        long blocked = metrics.getKeyPressBlockedNanos();
+        double[] latencies = {metrics.verdictLatencyNanos(50) / 1e3, metrics.verdictLatencyNanos(99) / 1e3,
+                metrics.verdictLatencyNanos(99.9) / 1e3, metrics.verdictLatencyNanos(100) / 1e3};
+        dealer.terminate();
+        dealerThread.join();
+
+        double seconds = elapsed / 1e9;
+        System.out.printf("%7d %,9.0f %,9.0f %,10.1f %,10.1f %,10.1f %,10.1f %9.1f%% %,11.1f %7.0f%%%n",
+                config.players, claims / seconds, sets / seconds, latencies[0], latencies[1], latencies[2], latencies[3],
+                blocked * 100.0 / elapsed / config.players, claims == 0 ? 0 : cpu / 1e3 / claims,
+                cpu == 0 ? 0 : Math.max(dealerCpu, 0) * 100.0 / cpu);
+    }
+}
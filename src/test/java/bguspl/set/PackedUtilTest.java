@@ -0,0 +1,44 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackedUtilTest {
+
+    private static Config config(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    @Test
+    void testSetAndCompleteSet_MatchUtilImplOnAllConfigurations() {
+        // includes configurations that need more than one long per card and one whose features do not fit in a long
+        int[][] configs = {{1, 3}, {2, 6}, {3, 4}, {3, 8}, {4, 5}, {5, 6}, {17, 4}, {33, 2}, {70, 1}};
+        Random random = new Random(3);
+        for (int[] sizes : configs) {
+            Config config = config(sizes[0], sizes[1]);
+            UtilImpl expected = new UtilImpl(config);
+            PackedUtil actual = new PackedUtil(config);
+            int[] cards = new int[config.featureSize];
+
+            for (int i = 0; i < 2000; ++i) {
+                for (int j = 0; j < cards.length; ++j)
+                    cards[j] = random.nextInt(config.deckSize);
+
+                // make about half of the candidates legal sets
+                int completion = expected.completeSet(cards, cards.length - 1);
+                if (completion >= 0 && random.nextBoolean()) cards[cards.length - 1] = completion;
+
+                assertEquals(expected.testSet(cards), actual.testSet(cards));
+                assertEquals(completion, actual.completeSet(cards, cards.length - 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetFinderTest {
+
+    private static UtilImpl util(int featureSize, int featureCount, int parallelThreshold) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("FindSetsParallelThreshold", Integer.toString(parallelThreshold));
+        return new UtilImpl(new Config(Logger.getAnonymousLogger(), properties));
+    }
+
+    private static List<Integer> deck(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    void findSets_ParallelMatchesSequential() {
+        int[][] configs = {{3, 6}, {4, 3}, {5, 3}};
+        for (int[] sizes : configs) {
+            UtilImpl sequential = util(sizes[0], sizes[1], 0);
+            UtilImpl parallel = util(sizes[0], sizes[1], 1);
+            List<Integer> deck = deck((int) Math.pow(sizes[0], sizes[1]));
+
+            List<int[]> expected = new ArrayList<>(sequential.findSets(deck, Integer.MAX_VALUE));
+            List<int[]> actual = new ArrayList<>(parallel.findSets(deck, Integer.MAX_VALUE));
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); ++i)
+                assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    void findSets_PrunedSearchMatchesEnumeration() {
+        int[][] configs = {{4, 3}, {4, 4}, {5, 3}};
+        Random random = new Random(5);
+        for (int[] sizes : configs) {
+            UtilImpl util = util(sizes[0], sizes[1], 0);
+            List<Integer> deck = deck((int) Math.pow(sizes[0], sizes[1]));
+            Collections.shuffle(deck, random);
+            List<Integer> cards = deck.subList(0, Math.min(40, deck.size()));
+
+            Set<String> expected = util.enumerateSets(cards, Integer.MAX_VALUE).stream()
+                    .map(Arrays::toString).collect(Collectors.toSet());
+            List<String> actual = util.findSets(cards, Integer.MAX_VALUE).stream()
+                    .map(Arrays::toString).collect(Collectors.toList());
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected, new HashSet<>(actual));
+        }
+    }
+
+    @Test
+    void forEachSet_StopsWhenActionReturnsFalse() {
+        UtilImpl util = util(3, 4, 0);
+        List<Integer> deck = deck(81);
+        List<int[]> expected = new ArrayList<>(util.findSets(deck, Integer.MAX_VALUE));
+
+        List<int[]> actual = new ArrayList<>();
+        int passed = util.forEachSet(deck, set -> {
+            actual.add(set.clone());
+            return actual.size() < 5;
+        });
+        assertEquals(5, passed);
+        for (int i = 0; i < actual.size(); ++i)
+            assertArrayEquals(expected.get(i), actual.get(i));
+    }
+
+    @Test
+    void countSets_MatchesFindSets() {
+        int[][] configs = {{3, 4}, {3, 6}, {4, 3}};
+        for (int[] sizes : configs) {
+            UtilImpl util = util(sizes[0], sizes[1], 500);
+            List<Integer> deck = deck((int) Math.pow(sizes[0], sizes[1]));
+            assertEquals(util.findSets(deck, Integer.MAX_VALUE).size(), util.countSets(deck, Integer.MAX_VALUE));
+            assertEquals(1, util.countSets(deck, 1));
+        }
+    }
+
+    @Test
+    void findSets_ParallelStopsAtCount() {
+        UtilImpl parallel = util(3, 6, 1);
+        List<Integer> deck = deck(729);
+        for (int count : new int[]{1, 7, 100}) {
+            List<int[]> sets = parallel.findSets(deck, count);
+            assertEquals(count, sets.size());
+            for (int[] set : sets)
+                assertTrue(parallel.testSet(set));
+        }
+    }
+}
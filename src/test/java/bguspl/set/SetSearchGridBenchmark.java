@@ -0,0 +1,67 @@
+package bguspl.set;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the search nodes (candidates examined) and wall time of the set finders against the combinations
+ * enumerator, for FeatureSize 3 to 5 and a few collection sizes.
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes bguspl.set.SetSearchGridBenchmark
+ */
+public class SetSearchGridBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        Logger logger = Logger.getAnonymousLogger();
+        int[][] grid = {{3, 4, 12}, {3, 4, 81}, {4, 4, 16}, {4, 4, 64}, {4, 4, 128}, {5, 3, 20}, {5, 3, 60}, {5, 3, 125}};
+        Random random = new Random(42);
+
+        System.out.printf("%-4s %-5s %-6s %-6s %14s %12s %14s %12s%n",
+                "size", "count", "cards", "sets", "enum nodes", "enum ms", "finder nodes", "finder ms");
+        for (int[] row : grid) {
+            Properties properties = new Properties();
+            properties.put("FeatureSize", Integer.toString(row[0]));
+            properties.put("FeatureCount", Integer.toString(row[1]));
+            properties.put("FindSetsParallelThreshold", "0");
+            Config config = new Config(logger, properties);
+            UtilImpl util = new UtilImpl(config);
+
+            List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+            Collections.shuffle(deck, random);
+            List<Integer> cards = deck.subList(0, row[2]);
+
+            SetFinder enumerator = new CombinationSetFinder(config.deckSize, 0, util, config.featureSize);
+            SetFinder finder = config.featureSize == 3
+                    ? new PairCompletionSetFinder(config.deckSize, 0, util::thirdCard)
+                    : new PrunedSetFinder(config, util);
+
+            LongAdder enumNodes = new LongAdder(), finderNodes = new LongAdder();
+            int sets = enumerator.findSets(cards, Integer.MAX_VALUE, enumNodes).size();
+            finder.findSets(cards, Integer.MAX_VALUE, finderNodes);
+            double enumMillis = measure(enumerator, cards), finderMillis = measure(finder, cards);
+
+            System.out.printf("%-4d %-5d %-6d %-6d %,14d %12.3f %,14d %12.3f%n", row[0], row[1], row[2], sets,
+                    enumNodes.sum(), enumMillis, finderNodes.sum(), finderMillis);
+        }
+    }
+
+    /**
+     * @return - the average time (in milliseconds) of a full search, after warmup searches.
+     */
+    private static double measure(SetFinder finder, List<Integer> cards) {
+        for (int i = 0; i < WARMUP_ROUNDS; ++i)
+            finder.findSets(cards, Integer.MAX_VALUE);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; ++i)
+            finder.findSets(cards, Integer.MAX_VALUE);
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+}
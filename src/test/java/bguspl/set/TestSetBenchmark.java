@@ -0,0 +1,123 @@
+package bguspl.set;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Measures set validations per second (and bytes allocated per validation) of UtilImpl.testSet and PackedUtil.testSet
+ * against the original implementation, which converted the cards to features on every call.
+ * Each measurement is a JMH-like run: warmup iterations followed by timed iterations of a fixed duration.
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes bguspl.set.TestSetBenchmark
+ */
+public class TestSetBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+    private static final int CANDIDATES = 1024;
+
+    private interface Validator {
+        boolean test(int[] cards);
+    }
+
+    public static void main(String[] args) {
+        Logger logger = Logger.getAnonymousLogger();
+        for (int featureCount : new int[]{4, 7, 8}) {
+            Properties properties = new Properties();
+            properties.put("FeatureSize", "3");
+            properties.put("FeatureCount", Integer.toString(featureCount));
+            Config config = new Config(logger, properties);
+            UtilImpl util = new UtilImpl(config);
+            PackedUtil packed = new PackedUtil(config);
+
+            // a mix of legal and illegal candidates, as the dealer sees them
+            Random random = new Random(42);
+            int[][] candidates = new int[CANDIDATES][];
+            for (int i = 0; i < CANDIDATES; ++i) {
+                int a = random.nextInt(config.deckSize), b = random.nextInt(config.deckSize);
+                int c = i % 2 == 0 ? util.thirdCard(a, b) : random.nextInt(config.deckSize);
+                candidates[i] = new int[]{a, b, c};
+            }
+
+            System.out.println("FeatureCount=" + featureCount);
+            run("  before (cardsToFeatures per call)", candidates, cards -> legacyTestSet(config, cards));
+            run("  after  (feature table)           ", candidates, util::testSet);
+            run("  packed (one-hot bit fields)      ", candidates, packed::testSet);
+        }
+    }
+
+    private static void run(String name, int[][] candidates, Validator validator) {
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i)
+            iteration(candidates, validator);
+
+        double[] scores = new double[MEASURED_ITERATIONS];
+        long allocated = 0, operations = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; ++i) {
+            long before = allocatedBytes();
+            long[] result = iteration(candidates, validator);
+            allocated += allocatedBytes() - before;
+            operations += result[0];
+            scores[i] = result[0] * 1e9 / result[1];
+        }
+
+        double mean = Arrays.stream(scores).average().orElse(0);
+        double deviation = Math.sqrt(Arrays.stream(scores).map(s -> (s - mean) * (s - mean)).sum() / scores.length);
+        System.out.printf("%s %,15.0f +- %,12.0f validations/s %8.1f B/op%n",
+                name, mean, deviation, (double) allocated / operations);
+    }
+
+    /**
+     * @return - the number of validations and the nanoseconds they took.
+     */
+    private static long[] iteration(int[][] candidates, Validator validator) {
+        long operations = 0, legal = 0;
+        long start = System.nanoTime(), elapsed;
+        do {
+            for (int[] candidate : candidates)
+                if (validator.test(candidate)) ++legal;
+            operations += candidates.length;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        if (legal < 0) System.out.print("");
+        return new long[]{operations, elapsed};
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * The original UtilImpl.testSet, kept here as the baseline.
+     */
+    private static boolean legacyTestSet(Config config, int[] input) {
+        int[] cards = Arrays.copyOf(input, input.length);
+        int[][] features = new int[cards.length][config.featureCount];
+        IntStream.range(0, cards.length).forEach(i -> {
+            int card = cards[i];
+            for (int f = config.featureCount - 1; f >= 0; --f) {
+                features[i][f] = card % config.featureSize;
+                card /= config.featureSize;
+            }
+        });
+        for (int i = 0; i < config.featureCount; ++i) {
+            boolean sameSame = true, butDifferent = true;
+            for (int j = 1; j < features.length; ++j)
+                if (features[0][i] != features[j][i]) {
+                    sameSame = false;
+                    break;
+                }
+            for (int j = 1; j < features.length; ++j)
+                for (int k = j; k < features.length; ++k)
+                    if (features[j - 1][i] == features[k][i]) {
+                        butDifferent = false;
+                        break;
+                    }
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealerTest {
+
+    /**
+     * Counts the freezes that started and ended.
+     */
+    private static final class FreezeCounter extends UserInterfaceHeadless {
+        final AtomicInteger started = new AtomicInteger(), ended = new AtomicInteger();
+
+        @Override
+        public void setFreeze(int player, long millies) {
+            if (millies == 0) ended.incrementAndGet();
+            else if (millies == 300) started.incrementAndGet();
+        }
+    }
+
+    @Test
+    void eventLoop_FreezesEndAndTurnTimesOutUnderContinuousKeyPresses() throws Exception {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("EventLoop", "True");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "4");
+        properties.put("FeatureCount", "6");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0.3");
+        properties.put("PenaltyFreezeSeconds", "0.3");
+        properties.put("TurnTimeoutSeconds", "0.5");
+        properties.put("TurnTimeoutWarningSeconds", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+
+        FreezeCounter ui = new FreezeCounter();
+        Env env = new Env(logger, config, ui, new UtilImpl(config));
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        // the computer players keep the key press queue full for the whole run
+        Thread dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        Thread.sleep(2_000);
+        dealer.terminate();
+        dealerThread.join(10_000);
+
+        assertTrue(!dealerThread.isAlive());
+        assertTrue(dealer.getReshuffles() >= 2);
+        assertTrue(ui.started.get() > 0);
+        assertTrue(ui.ended.get() > 0);
+    }
+}
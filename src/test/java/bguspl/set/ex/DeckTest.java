@@ -0,0 +1,68 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    private static int[] drawAll(Deck deck) {
+        int[] drawn = new int[deck.size()];
+        for (int i = 0; i < drawn.length; ++i)
+            drawn[i] = deck.draw();
+        return drawn;
+    }
+
+    @Test
+    void draw_EveryCardExactlyOnce() {
+        Deck deck = new Deck(81, new Random(3));
+        boolean[] seen = new boolean[81];
+        for (int card : drawAll(deck)) {
+            assertFalse(seen[card]);
+            seen[card] = true;
+        }
+        assertTrue(deck.isEmpty());
+    }
+
+    @Test
+    void draw_SameSeedSameOrder() {
+        assertArrayEquals(drawAll(new Deck(81, new Random(5))), drawAll(new Deck(81, new Random(5))));
+    }
+
+    @Test
+    void add_ReturnedCardsAreDrawnAgain() {
+        Deck deck = new Deck(12, new Random(9));
+        int first = deck.draw(), second = deck.draw();
+        deck.add(first);
+        deck.add(second);
+        assertEquals(12, deck.size());
+
+        boolean[] seen = new boolean[12];
+        for (int card : drawAll(deck))
+            seen[card] = true;
+        for (boolean card : seen)
+            assertTrue(card);
+    }
+
+    @Test
+    void remove_SpecificCardIsNoLongerDrawn() {
+        Deck deck = new Deck(27, new Random(1));
+        deck.remove(13);
+        deck.remove(26);
+        assertFalse(deck.contains(13));
+        assertTrue(deck.contains(0));
+
+        for (int card : drawAll(deck)) {
+            assertFalse(card == 13 || card == 26);
+            assertFalse(deck.contains(card));
+        }
+        deck.add(13);
+        assertTrue(deck.contains(13));
+        assertEquals(13, deck.draw());
+    }
+}
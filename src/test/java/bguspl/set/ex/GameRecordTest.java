@@ -0,0 +1,85 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameRecordTest {
+
+    private static Config config() {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("EventLoop", "True");
+        properties.put("RandomSeed", "17");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "3");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0.001");
+        // short turns, so some of them end by a timeout
+        properties.put("TurnTimeoutSeconds", "0.02");
+        properties.put("TurnTimeoutWarningSeconds", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+        return config;
+    }
+
+    /**
+     * Plays a game (or replays one, if replay is not null) and returns its record.
+     */
+    private static GameRecord play(Config config, GameRecord replay) {
+        Env env = new Env(Logger.getAnonymousLogger(), config, new UserInterfaceHeadless(), new UtilImpl(config));
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        GameRecord record = new GameRecord(config.randomSeed, config.players, config.tableSize);
+        dealer.recordTo(record);
+        if (replay != null) dealer.replayFrom(replay);
+        dealer.run();
+        return record;
+    }
+
+    @Test
+    void replayFrom_EndsAsRecorded() throws Exception {
+        Config config = config();
+        GameRecord original = play(config, null);
+        assertTrue(original.size() > 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.write(bytes);
+        GameRecord read = GameRecord.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(read.matches(original));
+
+        GameRecord replayed = play(config, read);
+        assertArrayEquals(original.scores(), replayed.scores());
+        assertArrayEquals(original.remainingCards(), replayed.remainingCards());
+        assertTrue(replayed.matches(original));
+    }
+
+    @Test
+    void matches_DifferentEventsDoNotMatch() {
+        GameRecord first = new GameRecord(1, 2, 12), second = new GameRecord(1, 2, 12);
+        first.add(3);
+        second.add(GameRecord.TIMEOUT);
+        first.finish(new int[]{0, 0}, new int[0]);
+        second.finish(new int[]{0, 0}, new int[0]);
+        assertFalse(first.matches(second));
+        assertEquals(1, second.size());
+    }
+}
@@ -0,0 +1,117 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SetIndexTest {
+
+    private static Config config(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    @Test
+    void fillWithDeck_CountsAllSetsOfTheDeck() {
+        int[][] configs = {{2, 3}, {3, 3}, {3, 4}, {4, 3}};
+        for (int[] sizes : configs) {
+            Config config = config(sizes[0], sizes[1]);
+            UtilImpl util = new UtilImpl(config);
+            SetIndex index = new SetIndex(util, config.featureSize, config.deckSize, config.deckSize, false);
+            index.fillWithDeck(config.featureCount);
+
+            List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+            assertEquals(util.findSets(deck, Integer.MAX_VALUE).size(), index.count());
+        }
+    }
+
+    @Test
+    void fillWithDeck_CountsMoreSetsThanAnInt() {
+        Config config = config(3, 11);
+        UtilImpl util = new UtilImpl(config);
+        SetIndex index = new SetIndex(util, config.featureSize, config.deckSize, config.deckSize, false);
+        index.fillWithDeck(config.featureCount);
+
+        // (9^11 - 3^11) / 6 sets, and every card is in (3^11 - 1) / 2 of them
+        long expected = 5_230_147_077L;
+        assertEquals(expected, index.count());
+        index.remove(0);
+        assertEquals(expected - 88_573, index.count());
+        index.remove(1);
+        assertEquals(expected - 2 * 88_573 + 1, index.count());
+    }
+
+    @Test
+    void remove_MatchesBruteForceOnRandomGames() {
+        Config config = config(3, 4);
+        UtilImpl util = new UtilImpl(config);
+        Random random = new Random(7);
+
+        for (int game = 0; game < 20; ++game) {
+            SetIndex index = new SetIndex(util, config.featureSize, config.deckSize, config.deckSize, false);
+            index.fillWithDeck(config.featureCount);
+            List<Integer> remaining = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+
+            // collect random sets until the remaining cards have none, as the dealer does
+            while (true) {
+                List<int[]> sets = util.enumerateSets(remaining, Integer.MAX_VALUE);
+                assertEquals(sets.size(), index.count());
+                if (sets.isEmpty()) break;
+
+                int[] collected = sets.get(random.nextInt(sets.size()));
+                for (int card : collected) {
+                    index.remove(card);
+                    remaining.remove(Integer.valueOf(card));
+                }
+                Collections.shuffle(remaining, random);
+            }
+            assertEquals(0, index.count());
+            assertEquals(remaining.size(), index.size());
+        }
+    }
+
+    @Test
+    void add_MatchesBruteForceOnRandomTables() {
+        Config config = config(4, 3);
+        UtilImpl util = new UtilImpl(config);
+        Random random = new Random(11);
+        int positions = 16;
+        SetIndex index = new SetIndex(util, config.featureSize, positions, config.deckSize, true);
+        Integer[] cards = new Integer[positions];
+
+        for (int i = 0; i < 300; ++i) {
+            int position = random.nextInt(positions);
+            int card = random.nextInt(config.deckSize);
+            List<Integer> onTable = new ArrayList<>();
+            for (Integer c : cards)
+                if (c != null) onTable.add(c);
+            if (onTable.contains(card) || random.nextInt(4) == 0) {
+                index.remove(position);
+                cards[position] = null;
+            } else {
+                index.add(position, card);
+                cards[position] = card;
+            }
+
+            onTable.clear();
+            for (Integer c : cards)
+                if (c != null) onTable.add(c);
+            int expected = util.findSets(onTable, Integer.MAX_VALUE).size();
+            assertEquals(expected, index.count());
+            assertEquals(expected, index.sets().size());
+        }
+    }
+}
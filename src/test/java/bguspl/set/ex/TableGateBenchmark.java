@@ -0,0 +1,187 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the contention on the gate of a real Table (beforePlayerAction/afterPlayerAction and
+ * beforeDealerAction/afterDealerAction) as the number of players grows from 2 to 64.
+ * Each player thread toggles its token on a random slot as fast as it can, and a dealer thread replaces a card every
+ * DEALER_PERIOD_NANOS (as it does after a claim). For each number of players it reports:
+ * - the throughput of the players' actions and of the dealer's writes;
+ * - the p50/p99 time a player waits to enter the table;
+ * - the p50/p99/max time the dealer waits to enter the table (i.e. the writer starvation), and the fraction of the
+ * time it spends waiting.
+ * With a file argument the results are also written in the CSV format of JMH, so a locking change can be compared
+ * against a baseline with the diff of the jmh profile (mvn -Pjmh exec:exec@jmh-diff -Djmh.baseline=... -Djmh.result=...).
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes bguspl.set.ex.TableGateBenchmark [results.csv]
+ */
+public class TableGateBenchmark {
+
+    private static final int[] PLAYERS = {2, 4, 8, 16, 32, 64};
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURED_NANOS = 3_000_000_000L;
+    private static final long DEALER_PERIOD_NANOS = 1_000_000L;
+
+    private static final int WARMUP = 0, MEASURED = 1, STOPPED = 2;
+
+    /**
+     * A histogram of durations in log-linear buckets (16 per power of 2, so a percentile is within 1/16 of its value),
+     * recorded by a single thread with no allocation.
+     */
+    private static final class Histogram {
+        private static final int SUB_BUCKETS = 16;
+        final long[] counts = new long[64 * SUB_BUCKETS];
+        long count, total, max;
+
+        void record(long nanos) {
+            long value = Math.max(nanos, 1);
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int sub = magnitude < 4 ? (int) value & (SUB_BUCKETS - 1) : (int) (value >>> (magnitude - 4)) & (SUB_BUCKETS - 1);
+            ++counts[magnitude * SUB_BUCKETS + sub];
+            ++count;
+            total += nanos;
+            max = Math.max(max, nanos);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; ++i)
+                counts[i] += other.counts[i];
+            count += other.count;
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        /**
+         * @return - the lower bound of the bucket that holds the given percentile.
+         */
+        long percentile(double percentile) {
+            long rank = (long) Math.ceil(count * percentile / 100), seen = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    int magnitude = i / SUB_BUCKETS, sub = i % SUB_BUCKETS;
+                    return magnitude < 4 ? sub : (long) (SUB_BUCKETS + sub) << (magnitude - 4);
+                }
+            }
+            return max;
+        }
+    }
+
+    private static volatile int phase;
+
+    public static void main(String[] args) throws Exception {
+        PrintWriter csv = args.length > 0 ? new PrintWriter(Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) : null;
+        if (csv != null)
+            csv.println("\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\",\"Score Error (99.9%)\",\"Unit\",\"Param: players\"");
+
+        System.out.printf("%7s %14s %12s %10s %10s %10s %10s %12s %10s%n", "players", "actions/s", "writes/s",
+                "p50 ns", "p99 ns", "dealer p50", "dealer p99", "dealer max", "starved");
+        for (int players : PLAYERS)
+            run(players, csv);
+        if (csv != null) csv.close();
+    }
+
+    private static void run(int players, PrintWriter csv) throws InterruptedException {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", Integer.toString(players));
+        properties.put("TableDelaySeconds", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+        Table table = new Table(env);
+        for (int slot = 0; slot < config.tableSize; ++slot)
+            table.placeCard(slot, slot);
+
+        phase = WARMUP;
+        Histogram[] playerWaits = new Histogram[players];
+        Thread[] threads = new Thread[players];
+        for (int i = 0; i < players; ++i) {
+            int id = i;
+            Histogram waits = playerWaits[i] = new Histogram();
+            threads[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int current = phase; current != STOPPED; current = phase) {
+                    int slot = random.nextInt(config.tableSize);
+                    long start = System.nanoTime();
+                    table.beforePlayerAction();
+                    long entered = System.nanoTime();
+                    if (!table.removeToken(id, slot)) table.placeToken(id, slot);
+                    table.afterPlayerAction();
+                    if (current == MEASURED) waits.record(entered - start);
+                }
+            }, "player-" + i);
+        }
+
+        Histogram dealerWaits = new Histogram();
+        Thread dealer = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int[] slots = new int[1], cards = new int[1];
+            long next = System.nanoTime();
+            for (int current = phase; current != STOPPED; current = phase) {
+                next += DEALER_PERIOD_NANOS;
+                LockSupport.parkNanos(next - System.nanoTime());
+                slots[0] = random.nextInt(config.tableSize);
+                cards[0] = table.cardInSlot(slots[0]);
+                long start = System.nanoTime();
+                table.beforeDealerAction();
+                long entered = System.nanoTime();
+                table.replaceCards(slots, cards);
+                table.afterDealerAction();
+                if (current == MEASURED) dealerWaits.record(entered - start);
+            }
+        }, "dealer");
+
+        for (Thread thread : threads)
+            thread.start();
+        dealer.start();
+        Thread.sleep(WARMUP_NANOS / 1_000_000);
+        phase = MEASURED;
+        Thread.sleep(MEASURED_NANOS / 1_000_000);
+        phase = STOPPED;
+        for (Thread thread : threads)
+            thread.join();
+        dealer.join();
+
+        Histogram waits = new Histogram();
+        for (Histogram histogram : playerWaits)
+            waits.add(histogram);
+        double seconds = MEASURED_NANOS / 1e9;
+        double actions = waits.count / seconds, writes = dealerWaits.count / seconds;
+        double starved = dealerWaits.total / (double) MEASURED_NANOS * 100;
+        System.out.printf("%7d %,14.0f %,12.0f %,10d %,10d %,10d %,10d %,12d %9.1f%%%n", players, actions, writes,
+                waits.percentile(50), waits.percentile(99), dealerWaits.percentile(50), dealerWaits.percentile(99),
+                dealerWaits.max, starved);
+
+        if (csv != null) {
+            row(csv, "playerActions", "thrpt", players, actions, "ops/s");
+            row(csv, "dealerWrites", "thrpt", players, writes, "ops/s");
+            row(csv, "playerWaitP50", "sample", players, waits.percentile(50), "ns");
+            row(csv, "playerWaitP99", "sample", players, waits.percentile(99), "ns");
+            row(csv, "dealerWaitP50", "sample", players, dealerWaits.percentile(50), "ns");
+            row(csv, "dealerWaitP99", "sample", players, dealerWaits.percentile(99), "ns");
+            row(csv, "dealerWaitMax", "sample", players, dealerWaits.max, "ns");
+            row(csv, "dealerStarvation", "sample", players, starved, "%");
+        }
+    }
+
+    private static void row(PrintWriter csv, String metric, String mode, int players, double score, String unit) {
+        csv.printf("\"%s.%s\",\"%s\",%d,1,%s,NaN,\"%s\",%d%n", TableGateBenchmark.class.getName(), metric, mode,
+                players + 1, Double.toString(score), unit, players);
+    }
+}
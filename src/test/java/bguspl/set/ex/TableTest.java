@@ -1,155 +1,275 @@
-package bguspl.set.ex;
-
-import bguspl.set.Config;
-import bguspl.set.Env;
-import bguspl.set.UserInterface;
-import bguspl.set.Util;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-
-import java.util.List;
-import java.util.Properties;
-import java.util.logging.Logger;
-
-import static org.junit.jupiter.api.Assertions.assertEquals;
-
-class TableTest {
-
-    Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
-
-    @BeforeEach
-    void setUp() {
-
-        Properties properties = new Properties();
-        properties.put("Rows", "2");
-        properties.put("Columns", "2");
-        properties.put("FeatureSize", "3");
-        properties.put("FeatureCount", "4");
-        properties.put("TableDelaySeconds", "0");
-        properties.put("PlayerKeys1", "81,87,69,82");
-        properties.put("PlayerKeys2", "85,73,79,80");
-        MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
-
-        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
-        table = new Table(env, slotToCard, cardToSlot);
-    }
-
-    private int fillSomeSlots() {
-        slotToCard[1] = 3;
-        slotToCard[2] = 5;
-        cardToSlot[3] = 1;
-        cardToSlot[5] = 2;
-
-        return 2;
-    }
-
-    private void fillAllSlots() {
-        for (int i = 0; i < slotToCard.length; ++i) {
-            slotToCard[i] = i;
-            cardToSlot[i] = i;
-        }
-    }
-
-    private void placeSomeCardsAndAssert() throws InterruptedException {
-        table.placeCard(8, 2);
-
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
-    }
-
-    @Test
-    void countCards_NoSlotsAreFilled() {
-
-        assertEquals(0, table.countCards());
-    }
-
-    @Test
-    void countCards_SomeSlotsAreFilled() {
-
-        int slotsFilled = fillSomeSlots();
-        assertEquals(slotsFilled, table.countCards());
-    }
-
-    @Test
-    void countCards_AllSlotsAreFilled() {
-
-        fillAllSlots();
-        assertEquals(slotToCard.length, table.countCards());
-    }
-
-    @Test
-    void placeCard_SomeSlotsAreFilled() throws InterruptedException {
-
-        fillSomeSlots();
-        placeSomeCardsAndAssert();
-    }
-
-    @Test
-    void placeCard_AllSlotsAreFilled() throws InterruptedException {
-        fillAllSlots();
-        placeSomeCardsAndAssert();
-    }
-
-    static class MockUserInterface implements UserInterface {
-        @Override
-        public void dispose() {}
-        @Override
-        public void placeCard(int card, int slot) {}
-        @Override
-        public void removeCard(int slot) {}
-        @Override
-        public void setCountdown(long millies, boolean warn) {}
-        @Override
-        public void setElapsed(long millies) {}
-        @Override
-        public void setScore(int player, int score) {}
-        @Override
-        public void setFreeze(int player, long millies) {}
-        @Override
-        public void placeToken(int player, int slot) {}
-        @Override
-        public void removeTokens() {}
-        @Override
-        public void removeTokens(int slot) {}
-        @Override
-        public void removeToken(int player, int slot) {}
-        @Override
-        public void announceWinner(int[] players) {}
-    };
-
-    static class MockUtil implements Util {
-        @Override
-        public int[] cardToFeatures(int card) {
-            return new int[0];
-        }
-
-        @Override
-        public int[][] cardsToFeatures(int[] cards) {
-            return new int[0][];
-        }
-
-        @Override
-        public boolean testSet(int[] cards) {
-            return false;
-        }
-
-        @Override
-        public List<int[]> findSets(List<Integer> deck, int count) {
-            return null;
-        }
-
-        @Override
-        public void spin() {}
-    }
-
-    static class MockLogger extends Logger {
-        protected MockLogger() {
-            super("", null);
-        }
-    }
-}
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableTest {
+
+    Table table;
+    private Integer[] slotToCard;
+    private Integer[] cardToSlot;
+    private Config config;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        MockLogger logger = new MockLogger();
+        config = new Config(logger, properties);
+        slotToCard = new Integer[config.tableSize];
+        cardToSlot = new Integer[config.deckSize];
+
+        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
+        table = new Table(env, slotToCard, cardToSlot);
+    }
+
+    private int fillSomeSlots() {
+        slotToCard[1] = 3;
+        slotToCard[2] = 5;
+        cardToSlot[3] = 1;
+        cardToSlot[5] = 2;
+
+        return 2;
+    }
+
+    private void fillAllSlots() {
+        for (int i = 0; i < slotToCard.length; ++i) {
+            slotToCard[i] = i;
+            cardToSlot[i] = i;
+        }
+    }
+
+    private void placeSomeCardsAndAssert() throws InterruptedException {
+        table.placeCard(8, 2);
+
+        assertEquals(8, (int) slotToCard[2]);
+        assertEquals(2, (int) cardToSlot[8]);
+    }
+
+    @Test
+    void countCards_NoSlotsAreFilled() {
+
+        assertEquals(0, table.countCards());
+    }
+
+    @Test
+    void countCards_SomeSlotsAreFilled() {
+
+        int slotsFilled = fillSomeSlots();
+        assertEquals(slotsFilled, table.countCards());
+    }
+
+    @Test
+    void countCards_AllSlotsAreFilled() {
+
+        fillAllSlots();
+        assertEquals(slotToCard.length, table.countCards());
+    }
+
+    @Test
+    void placeCard_SomeSlotsAreFilled() throws InterruptedException {
+
+        fillSomeSlots();
+        placeSomeCardsAndAssert();
+    }
+
+    @Test
+    void placeCard_AllSlotsAreFilled() throws InterruptedException {
+        fillAllSlots();
+        placeSomeCardsAndAssert();
+    }
+
+    @Test
+    void countSets_CompletingCardIsPlacedAndRemoved() {
+        Util util = new UtilImpl(config);
+        table = new Table(new Env(new MockLogger(), config, new MockUserInterface(), util), slotToCard, cardToSlot);
+
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(5, 2);
+        assertEquals(0, table.countSets());
+
+        table.placeCard(2, 3); // 0000, 0001, 0002 form a set
+        assertEquals(1, table.countSets());
+        assertArrayEquals(new int[]{0, 1, 3}, table.getSets().get(0));
+        assertEquals(1, table.getSlotSets(1).size());
+        assertTrue(table.getSlotSets(2).isEmpty());
+
+        table.removeCard(1);
+        assertEquals(0, table.countSets());
+        assertTrue(table.getSlotSets(0).isEmpty());
+    }
+
+    @Test
+    void countSets_MatchesFindSetsOnRandomChanges() {
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "5");
+        properties.put("TableDelaySeconds", "0");
+        config = new Config(new MockLogger(), properties);
+        Util util = new UtilImpl(config);
+        slotToCard = new Integer[config.tableSize];
+        cardToSlot = new Integer[config.deckSize];
+        table = new Table(new Env(new MockLogger(), config, new MockUserInterface(), util), slotToCard, cardToSlot);
+
+        Random random = new Random(1);
+        for (int i = 0; i < 500; ++i) {
+            int slot = random.nextInt(config.tableSize);
+            int card = random.nextInt(config.deckSize);
+            if (random.nextBoolean() || cardToSlot[card] != null) table.removeCard(slot);
+            else if (slotToCard[slot] == null) table.placeCard(card, slot);
+
+            List<Integer> cards = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+            assertEquals(util.findSets(cards, Integer.MAX_VALUE).size(), table.countSets());
+        }
+    }
+
+    @Test
+    void replaceCards_ReplacesAllSlotsAndTheirTokens() {
+        fillSomeSlots();
+        table.placeToken(0, 1);
+        table.placeToken(1, 2);
+        long version = table.getVersion();
+
+        table.replaceCards(new int[]{0, 1, 2}, new int[]{7, 8, -1});
+
+        assertArrayEquals(new Integer[]{7, 8, null, null}, slotToCard);
+        assertEquals(0, (int) cardToSlot[7]);
+        assertEquals(1, (int) cardToSlot[8]);
+        assertNull(cardToSlot[3]);
+        assertNull(cardToSlot[5]);
+        assertEquals(0, table.getPlayerCounter(0));
+        assertEquals(0, table.getPlayerCounter(1));
+        assertEquals(version + 1, table.getVersion());
+    }
+
+    @Test
+    void getHints_CachedUntilTheTableChanges() {
+        Util util = new UtilImpl(config);
+        table = new Table(new Env(new MockLogger(), config, new MockUserInterface(), util), slotToCard, cardToSlot);
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(2, 3);
+
+        long version = table.getVersion();
+        List<Hint> hints = table.getHints();
+        assertEquals(1, hints.size());
+        assertArrayEquals(new int[]{0, 1, 3}, hints.get(0).slots());
+        assertArrayEquals(new int[]{0, 1, 2}, hints.get(0).cards());
+        assertArrayEquals(util.cardsToFeatures(new int[]{0, 1, 2}), hints.get(0).features());
+        assertSame(hints, table.getHints());
+        hints.get(0).slots()[0] = 5;
+        hints.get(0).features()[0][0] = 2;
+        assertArrayEquals(new int[]{0, 1, 3}, table.getHints().get(0).slots());
+        assertArrayEquals(util.cardsToFeatures(new int[]{0, 1, 2}), table.getHints().get(0).features());
+
+        table.removeCard(1);
+        assertTrue(table.getVersion() > version);
+        assertTrue(table.getHints().isEmpty());
+    }
+
+    static class MockUserInterface implements UserInterface {
+        @Override
+        public void dispose() {}
+        @Override
+        public void placeCard(int card, int slot) {}
+        @Override
+        public void removeCard(int slot) {}
+        @Override
+        public void setCountdown(long millies, boolean warn) {}
+        @Override
+        public void setElapsed(long millies) {}
+        @Override
+        public void setScore(int player, int score) {}
+        @Override
+        public void setFreeze(int player, long millies) {}
+        @Override
+        public void placeToken(int player, int slot) {}
+        @Override
+        public void removeTokens() {}
+        @Override
+        public void removeTokens(int slot) {}
+        @Override
+        public void removeToken(int player, int slot) {}
+        @Override
+        public void announceWinner(int[] players) {}
+    };
+
+    static class MockUtil implements Util {
+        @Override
+        public int[] cardToFeatures(int card) {
+            return new int[0];
+        }
+
+        @Override
+        public int[][] cardsToFeatures(int[] cards) {
+            return new int[0][];
+        }
+
+        @Override
+        public boolean testSet(int[] cards) {
+            return false;
+        }
+
+        @Override
+        public boolean testSet(int[] cards, int length) {
+            return false;
+        }
+
+        @Override
+        public int completeSet(int[] cards, int length) {
+            return -1;
+        }
+
+        @Override
+        public List<int[]> findSets(List<Integer> deck, int count) {
+            return null;
+        }
+
+        @Override
+        public int forEachSet(List<Integer> deck, Predicate<int[]> action) {
+            return 0;
+        }
+
+        @Override
+        public int countSets(List<Integer> deck, int count) {
+            return 0;
+        }
+
+        @Override
+        public void spin() {}
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}